@@ -0,0 +1,44 @@
+package io.forest.langchain4j.metrics;
+
+import dev.langchain4j.model.chat.listener.ChatModelErrorContext;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+
+/**
+ * {@link ChatModelListener} recording the duration of every chat model call, streaming or not,
+ * in {@code <prefix>_stage_seconds{stage="llm"}}. Failed calls are counted separately in
+ * {@code <prefix>_llm_errors_total}.
+ */
+public class LatencyListener implements ChatModelListener {
+
+    private static final String STARTED_AT = LatencyListener.class.getName() + ".startedAt";
+
+    private final Metrics.Histogram llmLatency;
+    private final Metrics.Counter llmErrors;
+
+    /**
+     * @param metrics the registry to record in
+     */
+    public LatencyListener(Metrics metrics) {
+        this.llmLatency = metrics.stage("llm");
+        this.llmErrors = metrics.counter(metrics.prefix() + "_llm_errors_total", "Failed chat model calls");
+    }
+
+    @Override
+    public void onRequest(ChatModelRequestContext requestContext) {
+        requestContext.attributes().put(STARTED_AT, System.nanoTime());
+    }
+
+    @Override
+    public void onResponse(ChatModelResponseContext responseContext) {
+        if (responseContext.attributes().get(STARTED_AT) instanceof Long startedAt) {
+            llmLatency.recordSince(startedAt);
+        }
+    }
+
+    @Override
+    public void onError(ChatModelErrorContext errorContext) {
+        llmErrors.increment();
+    }
+}
@@ -0,0 +1,307 @@
+package io.forest.langchain4j.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of the latency histograms and counters of one application.
+ *
+ * <p>Each application keeps one registry in a {@code static final} field. Metrics are created
+ * once, typically into a {@code static final} field next to the logger, and recording is a
+ * {@link LongAdder} increment, so it is cheap enough for every request. Each metric is registered
+ * as an MXBean under {@code <jmxDomain>:type=Metrics} and {@link #scrape()} renders all of them in
+ * the Prometheus text format, see {@link MetricsServer}.
+ *
+ * <p>Labels are passed as alternating names and values, e.g.
+ * {@code histogram("rag_stage_seconds", "...", "stage", "search")}. Counter names end in
+ * {@code _total}.
+ */
+public final class Metrics {
+
+    private static final Logger log = LoggerFactory.getLogger(Metrics.class);
+
+    /**
+     * Upper bounds of the histogram buckets, from 0.5 ms to 60 s.
+     */
+    private static final double[] BUCKET_SECONDS =
+        {0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+
+    private record Family(String name, String help, String type, Map<String, Object> children) {
+    }
+
+    private final String prefix;
+    private final String jmxDomain;
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * @param prefix    prefix of the application's metric names, e.g. {@code rag}; names the
+     *                  {@link #stage(String)} histogram and the metrics of {@link LatencyListener}
+     * @param jmxDomain domain of the MXBeans, e.g. {@code io.forest.langchain4j.hybridrag}
+     */
+    public Metrics(String prefix, String jmxDomain) {
+        this.prefix = prefix;
+        this.jmxDomain = jmxDomain;
+    }
+
+    public String prefix() {
+        return prefix;
+    }
+
+    public interface CounterMXBean {
+
+        long getCount();
+    }
+
+    public interface HistogramMXBean {
+
+        long getCount();
+
+        double getMeanMillis();
+
+        double getP50Millis();
+
+        double getP95Millis();
+
+        double getP99Millis();
+    }
+
+    public static final class Counter implements CounterMXBean {
+
+        private final LongAdder count = new LongAdder();
+
+        private Counter() {
+        }
+
+        public void increment() {
+            count.increment();
+        }
+
+        public void add(long amount) {
+            count.add(amount);
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+    }
+
+    public static final class Histogram implements HistogramMXBean {
+
+        private static final long[] BOUNDS_NANOS = new long[BUCKET_SECONDS.length];
+
+        static {
+            for (int i = 0; i < BUCKET_SECONDS.length; i++) {
+                BOUNDS_NANOS[i] = (long) (BUCKET_SECONDS[i] * 1e9);
+            }
+        }
+
+        /**
+         * Per-bucket counts, not cumulative; the last one is the {@code +Inf} bucket.
+         */
+        private final LongAdder[] buckets = new LongAdder[BOUNDS_NANOS.length + 1];
+        private final LongAdder sumNanos = new LongAdder();
+
+        private Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Record one observation.
+         *
+         * @param nanos the measured duration in nanoseconds
+         */
+        public void record(long nanos) {
+            int bucket = 0;
+            while (bucket < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket].increment();
+            sumNanos.add(nanos);
+        }
+
+        /**
+         * @param startNanos a {@link System#nanoTime()} taken when the stage began
+         */
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        @Override
+        public long getCount() {
+            long count = 0;
+            for (LongAdder bucket : buckets) {
+                count += bucket.sum();
+            }
+            return count;
+        }
+
+        @Override
+        public double getMeanMillis() {
+            long count = getCount();
+            return count == 0 ? 0 : sumNanos.sum() / 1e6 / count;
+        }
+
+        @Override
+        public double getP50Millis() {
+            return quantileMillis(0.50);
+        }
+
+        @Override
+        public double getP95Millis() {
+            return quantileMillis(0.95);
+        }
+
+        @Override
+        public double getP99Millis() {
+            return quantileMillis(0.99);
+        }
+
+        /**
+         * Upper bound of the bucket holding the quantile, so an estimate rounded up to the bucket
+         * resolution. Returns infinity when the quantile falls beyond the last bound.
+         */
+        private double quantileMillis(double quantile) {
+            long[] counts = counts();
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < BOUNDS_NANOS.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return BUCKET_SECONDS[i] * 1_000;
+                }
+            }
+            return Double.POSITIVE_INFINITY;
+        }
+
+        private long[] counts() {
+            long[] counts = new long[buckets.length];
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] = buckets[i].sum();
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * Get or create a counter.
+     *
+     * @param name   metric name, ending in {@code _total}
+     * @param help   description shown in the Prometheus output
+     * @param labels label names and values, alternating
+     * @return the counter registered under this name and labels
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return metric(name, help, "counter", labels, Counter.class);
+    }
+
+    /**
+     * Get or create a latency histogram.
+     *
+     * @param name   metric name, ending in {@code _seconds}
+     * @param help   description shown in the Prometheus output
+     * @param labels label names and values, alternating
+     * @return the histogram registered under this name and labels
+     */
+    public Histogram histogram(String name, String help, String... labels) {
+        return metric(name, help, "histogram", labels, Histogram.class);
+    }
+
+    /**
+     * Latency histogram of one pipeline stage, {@code <prefix>_stage_seconds{stage="..."}}.
+     */
+    public Histogram stage(String stage) {
+        return histogram(prefix + "_stage_seconds", "Latency of " + prefix + " pipeline stages", "stage", stage);
+    }
+
+    /**
+     * All metrics in the Prometheus text exposition format, version 0.0.4.
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name()).append(' ').append(family.help()).append('\n');
+            out.append("# TYPE ").append(family.name()).append(' ').append(family.type()).append('\n');
+
+            family.children().forEach((labels, metric) -> {
+                if (metric instanceof Counter counter) {
+                    sample(out, family.name(), labels, null, counter.getCount());
+                } else if (metric instanceof Histogram histogram) {
+                    long[] counts = histogram.counts();
+                    long cumulative = 0;
+                    for (int i = 0; i < counts.length; i++) {
+                        cumulative += counts[i];
+                        String le = i < BUCKET_SECONDS.length ? Double.toString(BUCKET_SECONDS[i]) : "+Inf";
+                        sample(out, family.name() + "_bucket", labels, "le=\"" + le + "\"", cumulative);
+                    }
+                    sample(out, family.name() + "_sum", labels, null, histogram.sumNanos.sum() / 1e9);
+                    sample(out, family.name() + "_count", labels, null, cumulative);
+                }
+            });
+        }
+        return out.toString();
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, String extraLabel, Number value) {
+        out.append(name);
+        if (!labels.isEmpty() || extraLabel != null) {
+            out.append('{').append(labels);
+            if (extraLabel != null) {
+                out.append(labels.isEmpty() ? "" : ",").append(extraLabel);
+            }
+            out.append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private <T> T metric(String name, String help, String type, String[] labels, Class<T> metricType) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs: " + String.join(",", labels));
+        }
+        Family family = families.computeIfAbsent(name, it -> new Family(it, help, type, new ConcurrentHashMap<>()));
+        if (!family.type().equals(type)) {
+            throw new IllegalArgumentException("Metric %s is a %s, not a %s".formatted(name, family.type(), type));
+        }
+
+        StringBuilder rendered = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            rendered.append(i == 0 ? "" : ",").append(labels[i]).append("=\"").append(labels[i + 1]).append('"');
+        }
+
+        Object metric = family.children().computeIfAbsent(rendered.toString(), it -> {
+            Object created = metricType == Counter.class ? new Counter() : new Histogram();
+            registerMBean(name, labels, created);
+            return created;
+        });
+        return metricType.cast(metric);
+    }
+
+    private void registerMBean(String name, String[] labels, Object metric) {
+        StringBuilder objectName = new StringBuilder(jmxDomain).append(":type=Metrics,name=").append(name);
+        for (int i = 0; i < labels.length; i += 2) {
+            objectName.append(',').append(labels[i]).append('=').append(ObjectName.quote(labels[i + 1]));
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metric, new ObjectName(objectName.toString()));
+        } catch (JMException e) {
+            log.warn("Failed to register MBean {}", objectName, e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package io.forest.langchain4j.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves {@link Metrics#scrape()} at {@code GET /metrics} for Prometheus.
+ */
+public class MetricsServer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(MetricsServer.class);
+
+    private final HttpServer server;
+    private final Metrics metrics;
+
+    /**
+     * Bind the endpoint; call {@link #start()} to begin serving.
+     *
+     * @param port    the HTTP port, or 0 for an ephemeral one
+     * @param metrics the registry to serve
+     */
+    public MetricsServer(int port, Metrics metrics) {
+        this.metrics = metrics;
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to bind metrics server to port " + port, e);
+        }
+        this.server.createContext("/metrics", this::scrape);
+    }
+
+    public void start() {
+        server.start();
+        log.info("Metrics available at http://localhost:{}/metrics", port());
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void scrape(HttpExchange exchange) throws IOException {
+        byte[] body = metrics.scrape().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream response = exchange.getResponseBody()) {
+            response.write(body);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package io.forest.langchain4j.metrics;
+
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.service.TokenStream;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Starts a {@link TokenStream}, forwards its partial responses and measures
+ * the latency the user perceives.
+ *
+ * <p>The key figure is the time to first token. Note that with output
+ * guardrails configured it equals the time to the complete, validated reply,
+ * because the partial responses are held back until validation passes.</p>
+ *
+ * <p>Used by both demos: in the RAG pipeline the preparation before the
+ * stream is mostly retrieval, in the guardrails demo the input guardrails.</p>
+ */
+public final class TimedTokenStream {
+
+    /**
+     * Latencies of one streamed reply, all measured from the AI service call.
+     *
+     * @param preparation      until the AI service call returned the stream,
+     *                         i.e. retrieval, input guardrails and prompt
+     *                         assembly, which happen before the request to the
+     *                         model
+     * @param timeToFirstToken until the first partial response
+     * @param total            until the complete response
+     * @param partialResponses number of partial responses received
+     */
+    public record Timings(Duration preparation, Duration timeToFirstToken, Duration total, int partialResponses) {
+
+        @Override
+        public String toString() {
+            return "preparation=%d ms ttft=%d ms total=%d ms chunks=%d"
+                .formatted(preparation.toMillis(), timeToFirstToken.toMillis(), total.toMillis(), partialResponses);
+        }
+    }
+
+    private TimedTokenStream() {
+    }
+
+    /**
+     * Call the AI service and start streaming its reply.
+     *
+     * @param chat      the AI service call, e.g. {@code () -> assistant.chat(message)};
+     *                  a failed retrieval or rejected input surfaces here as
+     *                  an exception
+     * @param onToken   receives every partial response as it arrives
+     * @param onTimings receives the timings once the response is complete
+     * @return a future completed with the final response, or exceptionally
+     *         with the stream's error (including output guardrail failures)
+     */
+    public static CompletableFuture<ChatResponse> start(Supplier<TokenStream> chat, Consumer<String> onToken,
+                                                        Consumer<Timings> onTimings) {
+        CompletableFuture<ChatResponse> response = new CompletableFuture<>();
+        AtomicLong firstTokenAt = new AtomicLong();
+        AtomicInteger partialResponses = new AtomicInteger();
+        long startedAt = System.nanoTime();
+
+        TokenStream tokenStream = chat.get();
+        long preparedAt = System.nanoTime();
+
+        tokenStream
+            .onPartialResponse(token -> {
+                firstTokenAt.compareAndSet(0, System.nanoTime());
+                partialResponses.incrementAndGet();
+                onToken.accept(token);
+            })
+            .onCompleteResponse(complete -> {
+                long completedAt = System.nanoTime();
+                onTimings.accept(new Timings(
+                    Duration.ofNanos(preparedAt - startedAt),
+                    Duration.ofNanos((firstTokenAt.get() == 0 ? completedAt : firstTokenAt.get()) - startedAt),
+                    Duration.ofNanos(completedAt - startedAt),
+                    partialResponses.get()));
+                response.complete(complete);
+            })
+            .onError(response::completeExceptionally)
+            .start();
+
+        return response;
+    }
+}
@@ -0,0 +1,163 @@
+package io.forest.langchain4j.hybridrag;
+
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.core5.util.Timeout;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch.knn.OpenSearchKnnClient;
+import org.opensearch.client.transport.httpclient5.ApacheHttpClient5Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Rebuilds an index behind an alias without the rebuild being visible to queries.
+ *
+ * <ol>
+ *   <li>create a versioned index {@code <alias>-<timestamp>} with refresh disabled and no replicas</li>
+ *   <li>bulk-load it</li>
+ *   <li>restore refresh interval and replicas, refresh, force-merge and warm up the kNN graphs</li>
+ *   <li>point the alias at it in one atomic {@code _aliases} update</li>
+ *   <li>delete indices older than {@link ReindexOptions#retainedIndices()}</li>
+ * </ol>
+ *
+ * <p>Queries keep hitting the previous index, with its graphs loaded, until the swap. If the alias
+ * name is still taken by a concrete index from before, that index is removed in the same update.
+ * A failed load deletes the half-built index and leaves the alias untouched.
+ *
+ * <p>The load step returns what describes the new index, such as its ingestion manifest, and
+ * {@link #reindex} hands it back only after the swap. The caller persists it then, so a rebuild
+ * that fails at any step leaves the files of the index still behind the alias.
+ */
+public class AliasReindexer {
+
+    private static final Logger log = LoggerFactory.getLogger(AliasReindexer.class);
+
+    private static final DateTimeFormatter VERSION = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final OpenSearchClient client;
+    private final String alias;
+    private final ReindexOptions options;
+    private final Pattern versioned;
+
+    /**
+     * One step of the rebuild, applied to the new index.
+     */
+    @FunctionalInterface
+    public interface IndexStep {
+
+        void apply(String index) throws IOException;
+    }
+
+    public AliasReindexer(OpenSearchClient client, String alias, ReindexOptions options) {
+        this.client = client;
+        this.alias = alias;
+        this.options = options;
+        this.versioned = Pattern.compile(Pattern.quote(alias) + "-\\d{8}-\\d{6}-\\d{3}");
+    }
+
+    /**
+     * Loading the new index, returning what describes it.
+     */
+    @FunctionalInterface
+    public interface LoadStep<T> {
+
+        T load(String index) throws IOException;
+    }
+
+    /**
+     * @param createIndex creates the index with its mappings and base settings
+     * @param load        writes all documents into the index
+     * @return the result of {@code load}, once the new index is behind the alias
+     */
+    public <T> T reindex(IndexStep createIndex, LoadStep<T> load) throws IOException {
+        String index = alias + "-" + VERSION.format(ZonedDateTime.now(ZoneOffset.UTC));
+        long startedAt = System.nanoTime();
+
+        createIndex.apply(index);
+        client.indices().putSettings(p -> p
+            .index(index)
+            .settings(s -> s
+                .refreshInterval(t -> t.time("-1"))
+                .numberOfReplicas(0)));
+
+        T loaded;
+        try {
+            loaded = load.load(index);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Loading {} failed, deleting it and keeping alias {} as it is", index, alias);
+            client.indices().delete(d -> d.index(index));
+            throw e;
+        }
+        long loadedAt = System.nanoTime();
+
+        client.indices().putSettings(p -> p
+            .index(index)
+            .settings(s -> s
+                .refreshInterval(t -> t.time(options.refreshInterval()))
+                .numberOfReplicas(options.replicas())));
+        client.indices().refresh(r -> r.index(index));
+        // the merge blocks until done, far longer than the response timeout of ordinary requests
+        client.withTransportOptions(ApacheHttpClient5Options.DEFAULT.toBuilder()
+                .setRequestConfig(RequestConfig.custom()
+                    .setResponseTimeout(Timeout.of(options.mergeTimeout()))
+                    .build())
+                .build())
+            .indices()
+            .forcemerge(f -> f.index(index).maxNumSegments(options.maxNumSegments()));
+        new OpenSearchKnnClient(client._transport()).warmup(w -> w.index(index));
+        long warmedAt = System.nanoTime();
+
+        swap(index);
+
+        log.info("Reindexed {} into {}: load={} ms merge+warmup={} ms swap={} ms",
+            alias, index, (loadedAt - startedAt) / 1_000_000, (warmedAt - loadedAt) / 1_000_000,
+            (System.nanoTime() - warmedAt) / 1_000_000);
+
+        try {
+            deleteExpired(index);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Deleting indices expired by {} failed, retrying on the next rebuild", index, e);
+        }
+        return loaded;
+    }
+
+    private void swap(String index) throws IOException {
+        boolean aliasExists = client.indices().existsAlias(e -> e.name(alias)).value();
+        boolean concreteIndexExists = !aliasExists && client.indices().exists(e -> e.index(alias)).value();
+        Set<String> previous = aliasExists
+            ? client.indices().getAlias(g -> g.name(alias)).result().keySet()
+            : Set.of();
+
+        client.indices().updateAliases(u -> {
+            u.actions(a -> a.add(x -> x.index(index).alias(alias)));
+            if (!previous.isEmpty()) {
+                u.actions(a -> a.remove(x -> x.indices(List.copyOf(previous)).alias(alias)));
+            }
+            if (concreteIndexExists) {
+                u.actions(a -> a.removeIndex(x -> x.index(alias)));
+            }
+            return u;
+        });
+    }
+
+    private void deleteExpired(String current) throws IOException {
+        List<String> versions = new ArrayList<>(client.indices().get(g -> g.index(alias + "-*")).result().keySet());
+        versions.removeIf(it -> it.equals(current) || !versioned.matcher(it).matches());
+        versions.sort(Comparator.reverseOrder());
+
+        List<String> expired = versions.subList(Math.min(options.retainedIndices(), versions.size()), versions.size());
+        if (!expired.isEmpty()) {
+            log.info("Delete expired indices {}", expired);
+            client.indices().delete(d -> d.index(List.copyOf(expired)));
+        }
+    }
+}
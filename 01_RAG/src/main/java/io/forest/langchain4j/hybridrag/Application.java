@@ -1,45 +1,307 @@
 package io.forest.langchain4j.hybridrag;
 
 import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
 import dev.langchain4j.data.document.loader.github.GitHubDocumentLoader;
 import dev.langchain4j.data.document.parser.TextDocumentParser;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.http.client.jdk.JdkHttpClient;
 import dev.langchain4j.http.client.jdk.JdkHttpClientBuilder;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
 import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.HuggingFaceTokenCountEstimator;
 import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
 import dev.langchain4j.service.AiServices;
-import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
-import dev.langchain4j.store.embedding.opensearch.OpenSearchEmbeddingStore;
-import org.apache.hc.core5.http.HttpHost;
-import org.opensearch.client.json.jackson.JacksonJsonpMapper;
+import io.forest.langchain4j.metrics.LatencyListener;
+import io.forest.langchain4j.metrics.MetricsServer;
+import io.forest.langchain4j.metrics.TimedTokenStream;
 import org.opensearch.client.opensearch.OpenSearchClient;
-import org.opensearch.client.transport.httpclient5.ApacheHttpClient5Transport;
-import org.opensearch.client.transport.httpclient5.ApacheHttpClient5TransportBuilder;
+import org.opensearch.client.opensearch.knn.OpenSearchKnnClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public class Application {
 
     final static Logger log = LoggerFactory.getLogger(Application.class);
 
+    // LLM_BASE_URL points the chat models to another OpenAI-compatible server, e.g. the stub server of
+    // the 03_Benchmarks load test.
+    private static final String BASE_URL = System.getenv().getOrDefault("LLM_BASE_URL", "http://192.168.1.17:1234/v1");
+
+    /**
+     * Synthetic queries sent through the query path before the application reports ready, so the
+     * first user question does not pay for ONNX graph initialization, JIT compilation or loading the
+     * kNN graphs.
+     */
+    private static final List<String> WARM_UP_QUERIES = List.of(
+        "What is an aggregate root?",
+        "How do bounded contexts communicate?",
+        "When should a value object be used instead of an entity?",
+        "Where do domain events get published?");
+
     public static void main(String[] args) throws Exception {
 
+        // BOOTSTRAP_MODE=fast loads documents, embedding model, OpenSearch index check and chat client
+        // concurrently, reuses a compatible index instead of rebuilding it and warms up the query path
+        // before reporting ready; any other value runs the same steps one after another. Both log the
+        // startup timeline.
+        boolean fastStart = "fast".equalsIgnoreCase(System.getenv("BOOTSTRAP_MODE"));
+        StartupTimeline timeline = new StartupTimeline(fastStart
+            ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("bootstrap-", 0).factory())
+            : Runnable::run);
+
+        GitHubRepo gitHubRepo = new GitHubRepo("dennisholee", "ArchitectureDojo", "main");
+
+        CompletableFuture<Supplier<Stream<Document>>> documents = timeline.start("documents",
+            () -> documentSource(gitHubRepo));
+
+        CompletableFuture<EmbeddingModel> embeddingModelLoad = timeline.start("embedding_model", () -> {
+            log.info("Create Embedding model.");
+
+            EmbeddingModel model = new AllMiniLmL6V2EmbeddingModel();
+            if (fastStart) {
+                timeline.time("embedding_warmup", () -> model.embedAll(WARM_UP_QUERIES.stream()
+                    .map(TextSegment::from)
+                    .toList()));
+            }
+            return model;
+        });
+
+        // VECTOR_STORE=embedded keeps vectors, HNSW graph and BM25 index in-process, so no OpenSearch
+        // container is needed; any other value uses the OpenSearch index.
+        boolean embedded = "embedded".equalsIgnoreCase(System.getenv("VECTOR_STORE"));
+
+        // INGEST_MODE=incremental keeps an existing index and only re-embeds what changed since the
+        // last run (see IncrementalIngestor), any other value rebuilds the index from scratch.
+        boolean incremental = "incremental".equalsIgnoreCase(System.getenv("INGEST_MODE"));
+
+        CompletableFuture<OpenSearchIndex> openSearchIndex = embedded
+            ? null
+            : timeline.start("opensearch_index_check", () -> openSearchIndex(fastStart || incremental));
+        CompletableFuture<HnswEmbeddingStore> embeddedStore = embedded
+            ? timeline.start("vector_store", Application::embeddedStore)
+            : null;
+
+        log.info("Setup LM Studio connection.");
+
+        HttpClient.Builder clientBuilder = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1); // Force HTTP/1.1
+
+        JdkHttpClientBuilder jdkHttpClientBuilder = JdkHttpClient.builder()
+            .httpClientBuilder(clientBuilder);
+
+        // CHAT_MODE=streaming prints the answer token by token and logs the time to first token,
+        // CHAT_MODE=server answers many users over HTTP, any other value waits for the complete answer.
+        boolean streaming = "streaming".equalsIgnoreCase(System.getenv("CHAT_MODE"));
+
+        CompletableFuture<ChatModel> chatModel = streaming
+            ? null
+            : timeline.start("chat_client", () -> chatModel(jdkHttpClientBuilder));
+        CompletableFuture<StreamingChatModel> streamingChatModel = streaming
+            ? timeline.start("chat_client", () -> streamingChatModel(jdkHttpClientBuilder))
+            : null;
+
+        EmbeddingModel embeddingModel = embeddingModelLoad.join();
+
+        // Concurrent query embeddings that miss the cache share one embedAll call: up to 32 texts,
+        // waiting at most 500 us for company.
+        BatchingEmbeddingModel batchingEmbeddingModel = new BatchingEmbeddingModel(
+            embeddingModel,
+            32,
+            Duration.ofNanos(500_000));
+
+        QueryEmbeddingCache queryEmbeddingCache = new QueryEmbeddingCache(
+            batchingEmbeddingModel,
+            10_000,
+            Duration.ofHours(1));
+
+        // Paraphrased questions (cosine similarity >= 0.92) are answered without retrieval or LLM call.
+        // Cached answers are dropped whenever ingestion changes the index.
+        SemanticAnswerCache answerCache = new SemanticAnswerCache(
+            queryEmbeddingCache,
+            0.92,
+            1_000,
+            Duration.ofHours(24));
+
+        ContentRetriever contentRetriever = embedded
+            ? embeddedContentRetriever(documents.join(), embeddedStore.join(), embeddingModel, queryEmbeddingCache,
+                answerCache::invalidateAll, timeline)
+            : openSearchContentRetriever(documents.join(), openSearchIndex.join(), embeddingModel,
+                queryEmbeddingCache, answerCache::invalidateAll, fastStart, incremental, timeline);
+
+        if (fastStart) {
+            timeline.time("retrieval_warmup", () -> WARM_UP_QUERIES.stream()
+                .map(query -> contentRetriever.retrieve(Query.from(query)).size())
+                .toList());
+        }
+
+        // CHAT_MODE=server answers many users over HTTP, each session with its own chat memory. Only
+        // the first message of a session goes through the semantic answer cache, as later answers
+        // depend on the session's history.
+        if ("server".equalsIgnoreCase(System.getenv("CHAT_MODE"))) {
+            serveChat(chatModel.join(), contentRetriever, answerCache);
+            timeline.ready();
+            Runtime.getRuntime().addShutdownHook(new Thread(() ->
+                log.info("Query embedding batches {}", batchingEmbeddingModel.stats())));
+            return;
+        }
+
+        String question = "Recommend a DDD java folder structure?";
+
+        if (streaming) {
+            PrefetchingContentRetriever prefetchingContentRetriever = new PrefetchingContentRetriever(contentRetriever);
+
+            StreamingAssistant streamingAssistant = AiServices.builder(StreamingAssistant.class)
+                .streamingChatModel(streamingChatModel.join())
+                .chatMemory(MessageWindowChatMemory.withMaxMessages(10))
+                .contentRetriever(prefetchingContentRetriever)
+                .build();
+
+            timeline.ready();
+
+            // Retrieval already runs while the answer cache is consulted.
+            prefetchingContentRetriever.prefetch(question);
+
+            long answerCacheGeneration = answerCache.generation();
+            Optional<String> cachedAnswer = answerCache.get(question);
+
+            if (cachedAnswer.isPresent()) {
+                prefetchingContentRetriever.discard(question);
+                System.out.println(cachedAnswer.get());
+            } else {
+                ChatResponse chatResponse = TimedTokenStream.start(
+                    () -> streamingAssistant.chat(question),
+                    System.out::print,
+                    timings -> log.info("Streamed answer {}", timings)).join();
+
+                System.out.println();
+                answerCache.put(question, chatResponse.aiMessage().text(), answerCacheGeneration);
+            }
+        } else {
+            Assistant assistant = AiServices.builder(Assistant.class)
+                .chatModel(chatModel.join())
+                .chatMemory(MessageWindowChatMemory.withMaxMessages(10))
+                .contentRetriever(contentRetriever)
+                .build();
+
+            timeline.ready();
+
+            String answer = answerCache.answer(question, assistant::chat);
+
+            System.out.println(answer);
+        }
+
+        log.info("Query embedding cache {}", queryEmbeddingCache.stats());
+        log.info("Query embedding batches {}", batchingEmbeddingModel.stats());
+        log.info("Semantic answer cache {}", answerCache.stats());
+    }
+
+    private static ChatModel chatModel(JdkHttpClientBuilder jdkHttpClientBuilder) {
+        return OpenAiChatModel.builder()
+            .apiKey("lm-studio")
+            .baseUrl(BASE_URL)
+            .modelName("phi-3-mini-4k-instruct")
+            .httpClientBuilder(jdkHttpClientBuilder)
+            .listeners(List.of(new LatencyListener(RagMetrics.registry)))
+            .build();
+    }
+
+    private static StreamingChatModel streamingChatModel(JdkHttpClientBuilder jdkHttpClientBuilder) {
+        return OpenAiStreamingChatModel.builder()
+            .apiKey("lm-studio")
+            .baseUrl(BASE_URL)
+            .modelName("phi-3-mini-4k-instruct")
+            .httpClientBuilder(jdkHttpClientBuilder)
+            .listeners(List.of(new LatencyListener(RagMetrics.registry)))
+            .build();
+    }
+
+    private static void serveChat(ChatModel chatModel, ContentRetriever contentRetriever,
+                                  SemanticAnswerCache answerCache) {
+        // SESSION_SPILL_DIR keeps sessions pushed out of memory on disk instead of forgetting them.
+        Path spillDirectory = Optional.ofNullable(System.getenv("SESSION_SPILL_DIR"))
+            .map(Path::of)
+            .orElse(null);
+
+        SessionMemoryStore sessionMemoryStore = new SessionMemoryStore(
+            10_000,
+            Duration.ofMinutes(30),
+            spillDirectory);
+
+        SessionAssistant assistant = AiServices.builder(SessionAssistant.class)
+            .chatModel(chatModel)
+            .chatMemoryProvider(sessionId -> MessageWindowChatMemory.builder()
+                .id(sessionId)
+                .maxMessages(10)
+                .chatMemoryStore(sessionMemoryStore)
+                .build())
+            .contentRetriever(contentRetriever)
+            .build();
+
+        sessionMemoryStore.onEvict(assistant::evictChatMemory);
+
+        ChatServer chatServer = new ChatServer(assistant, sessionMemoryStore, answerCache, ChatServerOptions.defaults());
+        chatServer.start();
+
+        // Per-stage latency histograms and counters are also registered as MXBeans.
+        MetricsServer metricsServer = new MetricsServer(
+            Integer.parseInt(Optional.ofNullable(System.getenv("METRICS_PORT")).orElse("9404")), RagMetrics.registry);
+        metricsServer.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            chatServer.close();
+            metricsServer.close();
+            log.info("Session memory {}", sessionMemoryStore.stats());
+            log.info("Semantic answer cache {}", answerCache.stats());
+        }));
+    }
+
+    /**
+     * REPO_PATH points to a local clone or archive of the repository, which is streamed from disk
+     * without network access; otherwise the documents are loaded through the GitHub API.
+     */
+    private static Supplier<Stream<Document>> documentSource(GitHubRepo gitHubRepo) {
+        String repoPath = System.getenv("REPO_PATH");
+        if (repoPath != null) {
+            log.info("Stream documents from {}", repoPath);
+
+            LocalDocumentSource localDocumentSource = new LocalDocumentSource(
+                gitHubRepo,
+                Path.of(repoPath),
+                List.of("DDD/**"),
+                List.of());
+            return localDocumentSource::documents;
+        }
+
         log.info("Setup GitHub documentloader");
 
         GitHubDocumentLoader gitHubDocumentLoader = GitHubDocumentLoader.builder()
             .gitHubToken(System.getenv("GITHUB_TOKEN"))
             .build();
 
-        GitHubRepo gitHubRepo = new GitHubRepo("dennisholee", "ArchitectureDojo", "main");
-
         List<Document> documents = gitHubDocumentLoader.loadDocuments(
             gitHubRepo.owner(),
             gitHubRepo.repo(),
@@ -47,23 +309,61 @@ public class Application {
             "DDD",
             new TextDocumentParser()
         );
+        return documents::stream;
+    }
+
+    /**
+     * The OpenSearch client and the state of the index before ingestion.
+     *
+     * @param readiness whether the index can be reused, only checked with {@code BOOTSTRAP_MODE=fast}
+     *                  or {@code INGEST_MODE=incremental}, {@code null} otherwise
+     */
+    private record OpenSearchIndex(OpenSearchClient client, boolean quantized, IndexReadiness readiness) {
+    }
 
+    private static OpenSearchIndex openSearchIndex(boolean checkReadiness) throws IOException {
         log.info("Setup Open Search connection.");
 
-        OpenSearchConnection openSearchConnection = new OpenSearchConnection("http", "localhost", 9200);
+        // OPENSEARCH_NODES lists the nodes of the cluster, e.g. http://os1:9200,http://os2:9200.
+        // Ingestion and retrieval share one client, pooled over all nodes with failover between them.
+        List<OpenSearchConnection> openSearchConnections = OpenSearchConnection.parse(
+            Optional.ofNullable(System.getenv("OPENSEARCH_NODES")).orElse("http://localhost:9200"));
 
-        HttpHost httpHost = new HttpHost(
-            openSearchConnection.scheme(),
-            openSearchConnection.hostname(),
-            openSearchConnection.port());
+        // OPENSEARCH_NODE_SELECTION=least_latency prefers the fastest node, any other value spreads
+        // requests round-robin.
+        OpenSearchClusterOptions clusterOptions = OpenSearchClusterOptions.defaults().withSelection(
+            "least_latency".equalsIgnoreCase(System.getenv("OPENSEARCH_NODE_SELECTION"))
+                ? OpenSearchClusterOptions.NodeSelection.LEAST_LATENCY
+                : OpenSearchClusterOptions.NodeSelection.ROUND_ROBIN);
 
-        ApacheHttpClient5Transport apacheHttpClient5Transport = ApacheHttpClient5TransportBuilder.builder(httpHost)
-            .setMapper(new JacksonJsonpMapper())
-            .build();
+        OpenSearchClient openSearchClient = new OpenSearchClient(
+            new OpenSearchClusterTransport(openSearchConnections, clusterOptions));
 
-        log.info("Create Open Search index.");
+        // VECTOR_DATA_TYPE=byte stores int8 vectors (a quarter of the float32 graph memory), any other
+        // value keeps float32. Switching data type requires a full rebuild.
+        boolean quantized = "byte".equalsIgnoreCase(System.getenv("VECTOR_DATA_TYPE"));
 
-        OpenSearchClient openSearchClient = new OpenSearchClient(apacheHttpClient5Transport);
+        String index = "sample-index";
+
+        IndexReadiness readiness = checkReadiness
+            ? IndexReadiness.check(openSearchClient, index, 384, quantized,
+                manifestPath(index), Path.of(index + ".quantizer.json"))
+            : null;
+        return new OpenSearchIndex(openSearchClient, quantized, readiness);
+    }
+
+    private static ContentRetriever openSearchContentRetriever(Supplier<Stream<Document>> documents,
+                                                              OpenSearchIndex openSearchIndex,
+                                                              EmbeddingModel embeddingModel,
+                                                              EmbeddingModel queryEmbeddingModel,
+                                                              Runnable onIndexChange,
+                                                              boolean fastStart,
+                                                              boolean incremental,
+                                                              StartupTimeline timeline) throws IOException {
+
+        OpenSearchClient openSearchClient = openSearchIndex.client();
+
+        log.info("Create Open Search index.");
 
         String index = "sample-index";
 
@@ -103,22 +403,15 @@ public class Application {
          *   }
          * }
          */
-        openSearchClient.indices().create(r -> r
-            .index(index)
-            .settings(s -> s.knn(true)
-                .numberOfShards(1)
-                .numberOfReplicas(0)
-                .knnAlgoParamEfSearch(100))
-            .mappings(m -> m
-                .properties("vector", p -> p
-                    .knnVector(k -> k.dimension(dimensions)
-                        .method(a -> a.name("hnsw")
-                            .engine("faiss"))
-                    ))
-                .properties("text", p -> p
-                    .text(t -> t
-                        .analyzer("standard")))
-            ));
+        // A rebuild goes into a fresh versioned index that replaces the old one behind the
+        // "sample-index" alias only once it is loaded, merged and warm (see AliasReindexer).
+        // With INGEST_MODE=incremental or BOOTSTRAP_MODE=fast, an index that passes IndexReadiness
+        // is synced incrementally and any other one rebuilt, e.g. after a VECTOR_DATA_TYPE switch
+        // or without the quantizer it was built with.
+        boolean reuse = (fastStart || incremental) && openSearchIndex.readiness().reusable();
+
+        boolean quantized = openSearchIndex.quantized();
+        Path quantizerPath = Path.of(index + ".quantizer.json");
 
         /**
          * GET http://localhost:9200/sample-index/_mapping
@@ -151,37 +444,66 @@ public class Application {
          *     }
          * }
          */
-        log.info("Create Embedding store.");
-
-        EmbeddingModel embeddingModel = new AllMiniLmL6V2EmbeddingModel();
-
-        EmbeddingStore<TextSegment> embeddingStore = OpenSearchEmbeddingStore.builder()
-            .serverUrl("http://localhost:9200")
-            .indexName(index)
-            .build();
-
-        EmbeddingStoreIngestor embeddingStoreIngestor = EmbeddingStoreIngestor.builder()
-            .embeddingModel(embeddingModel)
-            .embeddingStore(embeddingStore)
-            .build();
-
-        embeddingStoreIngestor.ingest(documents);
-
-        log.info("Setup LM Studio connection.");
-
-        HttpClient.Builder clientBuilder = HttpClient.newBuilder()
-            .version(HttpClient.Version.HTTP_1_1); // Force HTTP/1.1
-
-        JdkHttpClientBuilder jdkHttpClientBuilder = JdkHttpClient.builder()
-            .httpClientBuilder(clientBuilder);
-
-        ChatModel chatModel = OpenAiChatModel.builder()
-            .apiKey("lm-studio")
-            .baseUrl("http://192.168.1.17:1234/v1")
-            .apiKey("lm-studio")
-            .modelName("phi-3-mini-4k-instruct")
-            .httpClientBuilder(jdkHttpClientBuilder)
-            .build();
+        /**
+         * With VECTOR_DATA_TYPE=byte the vector field is created as
+         *
+         * "vector": {
+         *   "type": "knn_vector",
+         *   "dimension": 384,
+         *   "data_type": "byte",
+         *   "space_type": "l2",
+         *   "method": { "name": "hnsw", "engine": "faiss" }
+         * }
+         *
+         * and both documents and queries are quantized with the calibration in sample-index.quantizer.json.
+         */
+        // A new calibration is saved only once the rebuilt index is live; until then the live index
+        // keeps being queried with the quantizer it was built with.
+        Int8Quantizer quantizer = null;
+        if (quantized) {
+            quantizer = reuse
+                ? Int8Quantizer.load(quantizerPath)
+                : calibrateQuantizer(documents, embeddingModel);
+
+            embeddingModel = new QuantizedEmbeddingModel(embeddingModel, quantizer);
+            queryEmbeddingModel = new QuantizedEmbeddingModel(queryEmbeddingModel, quantizer);
+        }
+
+        log.info("Ingest documents.");
+
+        EmbeddingModel documentEmbeddingModel = embeddingModel;
+
+        if (reuse) {
+            // A rebuilt index is warmed by the AliasReindexer; a reused one may not have its graphs in
+            // memory, e.g. after an OpenSearch restart, so they are loaded while the sync runs.
+            CompletableFuture<?> knnWarmup = fastStart
+                ? timeline.start("knn_warmup", () -> new OpenSearchKnnClient(openSearchClient._transport())
+                    .warmup(w -> w.index(index)))
+                : CompletableFuture.completedFuture(null);
+
+            SegmentSink bulkIndexer = new OpenSearchBulkIndexer(openSearchClient, index).onFlush(onIndexChange);
+
+            IncrementalIngestor incrementalIngestor = incrementalIngestor(documentEmbeddingModel, bulkIndexer, index);
+            timeline.time("ingestion", () -> {
+                incrementalIngestor.commit(incrementalIngestor.sync(documents.get()));
+                return null;
+            });
+            knnWarmup.join();
+        } else {
+            IncrementalIngestor.SyncReport rebuilt = timeline.time("ingestion", () ->
+                new AliasReindexer(openSearchClient, index, ReindexOptions.defaults()).reindex(
+                    target -> createIndex(openSearchClient, target, dimensions, quantized),
+                    target -> incrementalIngestor(documentEmbeddingModel, new OpenSearchBulkIndexer(openSearchClient, target), index)
+                        .sync(documents.get(), IngestionManifest.empty())));
+
+            // The new index is behind the alias now, so its manifest and calibration may replace the old ones.
+            rebuilt.manifest().save(manifestPath(index));
+            if (quantizer != null) {
+                quantizer.save(quantizerPath);
+            }
+
+            onIndexChange.run();
+        }
 
         /**
          * PUT http://localhost:9200/_search/pipeline/rrf-pipeline
@@ -199,21 +521,159 @@ public class Application {
          *   ]
          * }
          */
-        HybridContentRetriever hybridContentRetriever = new HybridContentRetriever(
-            openSearchClient,
+        // RETRIEVAL_MODE=fusion runs the BM25 and kNN legs as parallel searches fused client-side,
+        // any other value uses the server-side hybrid query with the rrf-pipeline above.
+        ContentRetriever contentRetriever = "fusion".equalsIgnoreCase(System.getenv("RETRIEVAL_MODE"))
+            ? new FusionContentRetriever(openSearchClient, queryEmbeddingModel, index, FusionOptions.defaults())
+            : new HybridContentRetriever(openSearchClient, queryEmbeddingModel, index);
+
+        return contextAssembler(contentRetriever, queryEmbeddingModel, SegmentVectors.of(openSearchClient, index));
+    }
+
+    private static void createIndex(OpenSearchClient openSearchClient, String index, int dimensions,
+                                    boolean quantized) throws IOException {
+        openSearchClient.indices().create(r -> r
+            .index(index)
+            .settings(s -> s.knn(true)
+                .numberOfShards(1)
+                .numberOfReplicas(0)
+                .knnAlgoParamEfSearch(100))
+            .mappings(m -> m
+                .properties("vector", p -> p
+                    .knnVector(k -> quantized
+                        ? k.dimension(dimensions)
+                            .dataType("byte")
+                            .spaceType("l2")
+                            .method(a -> a.name("hnsw")
+                                .engine("faiss"))
+                        : k.dimension(dimensions)
+                            .method(a -> a.name("hnsw")
+                                .engine("faiss"))
+                    ))
+                .properties("text", p -> p
+                    .text(t -> t
+                        .analyzer("standard")))
+            ));
+    }
+
+    /**
+     * The manifest is named after the alias, so it stays valid across rebuilds.
+     */
+    private static IncrementalIngestor incrementalIngestor(EmbeddingModel embeddingModel, SegmentSink segmentSink,
+                                                          String alias) {
+        IngestionPipeline ingestionPipeline = new IngestionPipeline(
             embeddingModel,
-            index
-        );
+            documentSplitter(),
+            segmentSink,
+            IngestionOptions.defaults());
+
+        return new IncrementalIngestor(
+            ingestionPipeline,
+            segmentSink,
+            manifestPath(alias));
+    }
 
-        Assistant assistant = AiServices.builder(Assistant.class)
-            .chatModel(chatModel)
-            .chatMemory(MessageWindowChatMemory.withMaxMessages(10))
-            .contentRetriever(hybridContentRetriever)
-            .build();
+    private static Path manifestPath(String alias) {
+        return Path.of(alias + ".manifest.json");
+    }
+
+    private static final Path EMBEDDED_STORE_PATH = Path.of("sample-index.hnsw");
+
+    private static HnswEmbeddingStore embeddedStore() {
+        log.info("Open embedded HNSW store.");
+
+        return Files.exists(EMBEDDED_STORE_PATH)
+            ? HnswEmbeddingStore.load(EMBEDDED_STORE_PATH, HnswOptions.defaults().efSearch())
+            : new HnswEmbeddingStore(HnswOptions.defaults());
+    }
+
+    private static ContentRetriever embeddedContentRetriever(Supplier<Stream<Document>> documents,
+                                                            HnswEmbeddingStore embeddingStore,
+                                                            EmbeddingModel embeddingModel,
+                                                            EmbeddingModel queryEmbeddingModel,
+                                                            Runnable onIndexChange,
+                                                            StartupTimeline timeline) {
 
-        String answer = assistant.chat("Recommend a DDD java folder structure?");
+        Path storePath = EMBEDDED_STORE_PATH;
+        boolean storeExists = Files.exists(storePath);
+
+        SegmentSink segmentSink = SegmentSink.of(embeddingStore).onFlush(onIndexChange);
+
+        IngestionPipeline ingestionPipeline = new IngestionPipeline(
+            embeddingModel,
+            documentSplitter(),
+            segmentSink,
+            IngestionOptions.defaults());
+
+        IncrementalIngestor incrementalIngestor = new IncrementalIngestor(
+            ingestionPipeline,
+            segmentSink,
+            Path.of(storePath + ".manifest.json"));
+
+        IncrementalIngestor.SyncReport syncReport = timeline.time("ingestion", () -> storeExists
+            ? incrementalIngestor.sync(documents.get())
+            : incrementalIngestor.sync(documents.get(), IngestionManifest.empty()));
+
+        // The manifest goes last: it must never list segments the saved store does not hold.
+        embeddingStore.save(storePath);
+        incrementalIngestor.commit(syncReport);
+
+        return contextAssembler(
+            new LocalHybridContentRetriever(embeddingStore, queryEmbeddingModel, FusionOptions.defaults()),
+            queryEmbeddingModel,
+            SegmentVectors.of(embeddingStore));
+    }
+
+    /**
+     * Ten segments of up to 300 tokens do not fit the 4k window of phi-3-mini next to the chat
+     * memory, so hits are deduplicated, reordered by MMR and packed to a token budget. Tokens are
+     * counted with the same estimator as in {@link #documentSplitter()}.
+     */
+    private static ContentRetriever contextAssembler(ContentRetriever contentRetriever,
+                                                     EmbeddingModel queryEmbeddingModel,
+                                                     SegmentVectors segmentVectors) {
+        return new ContextAssembler(
+            contentRetriever,
+            queryEmbeddingModel,
+            segmentVectors,
+            new HuggingFaceTokenCountEstimator(),
+            ContextOptions.defaults());
+    }
+
+    /**
+     * Calibrates on a uniform random sample of at most 2000 segments of the corpus, drawn in one
+     * pass (reservoir sampling) so the corpus is never held in memory.
+     */
+    private static Int8Quantizer calibrateQuantizer(Supplier<Stream<Document>> documents,
+                                                    EmbeddingModel embeddingModel) {
+        log.info("Calibrate vector quantizer.");
+
+        DocumentSplitter documentSplitter = documentSplitter();
+        List<TextSegment> sample = new ArrayList<>(2000);
+        Random random = new Random(42);
+        long seen = 0;
+
+        try (Stream<Document> stream = documents.get()) {
+            for (Iterator<Document> iterator = stream.iterator(); iterator.hasNext(); ) {
+                for (TextSegment segment : documentSplitter.split(iterator.next())) {
+                    seen++;
+                    if (sample.size() < 2000) {
+                        sample.add(segment);
+                    } else {
+                        long slot = random.nextLong(seen);
+                        if (slot < 2000) {
+                            sample.set((int) slot, segment);
+                        }
+                    }
+                }
+            }
+        }
+
+        return Int8Quantizer.calibrate(embeddingModel.embedAll(sample).content(), 0.999);
+    }
 
-        System.out.println(answer);
+    static DocumentSplitter documentSplitter() {
+        return DocumentSplitters.recursive(300, 30, new HuggingFaceTokenCountEstimator());
     }
 }
 
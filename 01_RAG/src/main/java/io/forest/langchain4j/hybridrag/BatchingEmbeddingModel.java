@@ -0,0 +1,221 @@
+package io.forest.langchain4j.hybridrag;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link EmbeddingModel} decorator that coalesces concurrent single-text {@code embed} calls into
+ * one {@link EmbeddingModel#embedAll(List)} call on the delegate.
+ *
+ * <p>A batch is dispatched when it holds {@code maxBatchSize} texts or when its first text has
+ * waited {@code maxWait}, whichever comes first. Batches are run one at a time by a single
+ * dispatcher thread; callers queueing up while a batch runs form the next one, so the batch size
+ * grows with load and a lone caller only pays {@code maxWait}. {@link #embedAll(List)} is already
+ * batched and passed through.
+ *
+ * <p>{@link #stats()} reports the batch-size distribution and the queueing delay the coalescing
+ * added, i.e. the time from {@code embed} being called until its batch was handed to the delegate.
+ */
+public class BatchingEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchingEmbeddingModel.class);
+
+    private final EmbeddingModel delegate;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread dispatcher;
+    private volatile boolean closed;
+
+    private final AtomicLongArray batchSizeCounts;
+    private final LongAdder items = new LongAdder();
+    private final LongAdder queueDelayNanos = new LongAdder();
+    private final LongAccumulator maxQueueDelayNanos = new LongAccumulator(Math::max, 0);
+
+    private record Pending(TextSegment textSegment, long enqueuedAt, CompletableFuture<Embedding> embedding) {
+    }
+
+    /**
+     * @param batchSizeCounts number of batches of each size; element {@code i} counts batches of
+     *                        {@code i + 1} texts
+     */
+    public record Stats(long batches, long items, List<Long> batchSizeCounts, Duration meanQueueDelay,
+                        Duration maxQueueDelay) {
+
+        public double meanBatchSize() {
+            return batches == 0 ? 0 : (double) items / batches;
+        }
+
+        @Override
+        public String toString() {
+            return "batches=%d items=%d mean_batch_size=%.2f batch_sizes=%s mean_queue_delay=%d us max_queue_delay=%d us"
+                .formatted(batches, items, meanBatchSize(), batchSizeCounts,
+                    meanQueueDelay.toNanos() / 1_000, maxQueueDelay.toNanos() / 1_000);
+        }
+    }
+
+    public BatchingEmbeddingModel(EmbeddingModel delegate, int maxBatchSize, Duration maxWait) {
+        if (maxBatchSize < 1 || maxWait.isNegative()) {
+            throw new IllegalArgumentException("Invalid batching options: max_batch_size=%d max_wait=%s"
+                .formatted(maxBatchSize, maxWait));
+        }
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.batchSizeCounts = new AtomicLongArray(maxBatchSize);
+
+        this.dispatcher = Thread.ofPlatform()
+            .name("embedding-batcher")
+            .daemon()
+            .start(this::dispatch);
+    }
+
+    @Override
+    public Response<Embedding> embed(String text) {
+        return embed(TextSegment.from(text));
+    }
+
+    @Override
+    public Response<Embedding> embed(TextSegment textSegment) {
+        if (closed) {
+            throw new IllegalStateException("Embedding batcher is closed");
+        }
+        Pending pending = new Pending(textSegment, System.nanoTime(), new CompletableFuture<>());
+        queue.add(pending);
+        if (closed && queue.remove(pending)) {
+            pending.embedding().completeExceptionally(new IllegalStateException("Embedding batcher is closed"));
+        }
+
+        try {
+            return Response.from(pending.embedding().join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        return delegate.embedAll(textSegments);
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    public Stats stats() {
+        long[] counts = new long[batchSizeCounts.length()];
+        long batches = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = batchSizeCounts.get(i);
+            batches += counts[i];
+        }
+        long itemCount = items.sum();
+        return new Stats(
+            batches,
+            itemCount,
+            Arrays.stream(counts).boxed().toList(),
+            Duration.ofNanos(itemCount == 0 ? 0 : queueDelayNanos.sum() / itemCount),
+            Duration.ofNanos(maxQueueDelayNanos.get()));
+    }
+
+    /**
+     * Stops the dispatcher; callers still waiting fail with an {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        dispatcher.interrupt();
+        try {
+            dispatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failAll(drain(), new IllegalStateException("Embedding batcher is closed"));
+    }
+
+    private void dispatch() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (!closed) {
+            try {
+                Pending first = queue.take();
+                batch.add(first);
+
+                long deadline = first.enqueuedAt() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                failAll(batch, new IllegalStateException("Embedding batcher is closed"));
+                return;
+            }
+
+            embedBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void embedBatch(List<Pending> batch) {
+        long dispatchedAt = System.nanoTime();
+        for (Pending pending : batch) {
+            long delay = dispatchedAt - pending.enqueuedAt();
+            queueDelayNanos.add(delay);
+            maxQueueDelayNanos.accumulate(delay);
+        }
+        batchSizeCounts.incrementAndGet(batch.size() - 1);
+        items.add(batch.size());
+
+        try {
+            List<Embedding> embeddings = delegate.embedAll(batch.stream().map(Pending::textSegment).toList()).content();
+            if (embeddings.size() != batch.size()) {
+                throw new IllegalStateException("Expected %d embeddings but got %d"
+                    .formatted(batch.size(), embeddings.size()));
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).embedding().complete(embeddings.get(i));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to embed batch of {} texts", batch.size(), e);
+            failAll(batch, e);
+        }
+    }
+
+    private List<Pending> drain() {
+        List<Pending> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        return pending;
+    }
+
+    private static void failAll(List<Pending> batch, RuntimeException error) {
+        batch.forEach(pending -> pending.embedding().completeExceptionally(error));
+    }
+}
@@ -0,0 +1,142 @@
+package io.forest.langchain4j.hybridrag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process BM25 inverted index over segment texts, the local counterpart of the {@code match}
+ * query on the {@code text} field. Documents are the node ordinals of the owning
+ * {@link HnswEmbeddingStore}, which also guards it with its lock.
+ *
+ * <p>Tokenization approximates the OpenSearch {@code standard} analyzer: lower-cased runs of
+ * letters and digits. Removed documents are skipped at query time and no longer count towards
+ * document frequencies, so idf stays positive however often segments are replaced.
+ */
+class Bm25Index {
+
+    private static final Pattern TOKEN = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final BitSet removed = new BitSet();
+    private int[] lengths = new int[1024];
+    private int documents;
+    private long totalLength;
+
+    record ScoredDocument(int document, double score) {
+    }
+
+    void add(int document, String text) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        List<String> tokens = tokenize(text);
+        tokens.forEach(it -> frequencies.merge(it, 1, Integer::sum));
+
+        if (document >= lengths.length) {
+            lengths = Arrays.copyOf(lengths, Math.max(document + 1, lengths.length * 2));
+        }
+        lengths[document] = tokens.size();
+        documents++;
+        totalLength += tokens.size();
+
+        frequencies.forEach((term, frequency) -> postings
+            .computeIfAbsent(term, it -> new Postings())
+            .add(document, frequency));
+    }
+
+    /**
+     * Removes a document added with the same {@code text}, which is tokenized again to find the
+     * terms whose document frequency drops.
+     */
+    void remove(int document, String text) {
+        if (document < lengths.length && !removed.get(document)) {
+            removed.set(document);
+            documents--;
+            totalLength -= lengths[document];
+            for (String term : new HashSet<>(tokenize(text))) {
+                Postings termPostings = postings.get(term);
+                if (termPostings != null) {
+                    termPostings.live--;
+                }
+            }
+        }
+    }
+
+    List<ScoredDocument> search(String query, int limit) {
+        if (documents == 0) {
+            return List.of();
+        }
+        double averageLength = (double) totalLength / documents;
+        Map<Integer, Double> scores = new HashMap<>();
+
+        for (String term : tokenize(query)) {
+            Postings termPostings = postings.get(term);
+            if (termPostings == null || termPostings.live == 0) {
+                continue;
+            }
+            double idf = Math.log(1 + (documents - termPostings.live + 0.5) / (termPostings.live + 0.5));
+
+            for (int i = 0; i < termPostings.size; i++) {
+                int document = termPostings.documents[i];
+                if (removed.get(document)) {
+                    continue;
+                }
+                int frequency = termPostings.frequencies[i];
+                double norm = K1 * (1 - B + B * lengths[document] / averageLength);
+                scores.merge(document, idf * frequency * (K1 + 1) / (frequency + norm), Double::sum);
+            }
+        }
+
+        PriorityQueue<ScoredDocument> top = new PriorityQueue<>(
+            (a, b) -> Double.compare(a.score(), b.score()));
+        scores.forEach((document, score) -> {
+            top.add(new ScoredDocument(document, score));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        });
+
+        List<ScoredDocument> ranked = new ArrayList<>(top);
+        ranked.sort((a, b) -> Double.compare(b.score(), a.score()));
+        return ranked;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(text.toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            tokens.add(matcher.group());
+        }
+        return tokens;
+    }
+
+    private static class Postings {
+
+        int[] documents = new int[4];
+        int[] frequencies = new int[4];
+        int size;
+        // postings of documents that have not been removed, the document frequency
+        int live;
+
+        void add(int document, int frequency) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            documents[size] = document;
+            frequencies[size] = frequency;
+            size++;
+            live++;
+        }
+    }
+}
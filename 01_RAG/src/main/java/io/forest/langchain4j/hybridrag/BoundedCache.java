@@ -0,0 +1,173 @@
+package io.forest.langchain4j.hybridrag;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Size- and TTL-bounded LRU cache, safe for concurrent use.
+ *
+ * <p>Keys are spread over lock-striped segments, each an access-ordered {@link LinkedHashMap}, so
+ * concurrent readers of different keys rarely contend. LRU order and the size bound are therefore
+ * per segment, which is close enough to global LRU for caches of a few hundred entries and up.
+ * Expired entries are dropped lazily when they are looked up or pushed out by newer entries.
+ */
+public class BoundedCache<K, V> {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment<K, V>[] segments;
+    private final long timeToLiveNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BoundedCache(int maximumSize, Duration timeToLive) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        int segmentCount = Math.min(MAX_SEGMENTS, maximumSize);
+
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            int segmentSize = maximumSize / segmentCount + (i < maximumSize % segmentCount ? 1 : 0);
+            this.segments[i] = new Segment<>(segmentSize, evictions);
+        }
+        this.timeToLiveNanos = timeToLive.toNanos();
+    }
+
+    /**
+     * @return the cached value, or {@code null} if absent or expired
+     */
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        long now = System.nanoTime();
+
+        segment.lock.lock();
+        try {
+            Entry<V> entry = segment.entries.get(key);
+            if (entry != null && now - entry.writtenAt() > timeToLiveNanos) {
+                segment.entries.remove(key);
+                expirations.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value();
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    public void put(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+
+        segment.lock.lock();
+        try {
+            segment.entries.put(key, new Entry<>(value, System.nanoTime()));
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the cached value or loads and caches it. The loader runs outside the segment lock, so
+     * a slow load never blocks other keys; concurrent misses on the same key may load twice.
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    public void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(key);
+
+        segment.lock.lock();
+        try {
+            segment.entries.remove(key);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.entries.clear();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.entries.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), size());
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[Math.floorMod(hash, segments.length)];
+    }
+
+    /**
+     * @param evictions   entries dropped because their segment was full
+     * @param expirations entries dropped because they outlived the TTL
+     */
+    public record Stats(long hits, long misses, long evictions, long expirations, int size) {
+
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+    }
+
+    private record Entry<V>(V value, long writtenAt) {
+    }
+
+    private static class Segment<K, V> {
+
+        final ReentrantLock lock = new ReentrantLock();
+        final LinkedHashMap<K, Entry<V>> entries;
+
+        Segment(int capacity, LongAdder evictions) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                    if (size() > capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+}
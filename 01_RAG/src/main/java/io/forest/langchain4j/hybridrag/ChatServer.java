@@ -0,0 +1,206 @@
+package io.forest.langchain4j.hybridrag;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP front end for a {@link SessionAssistant}, one virtual thread per request.
+ *
+ * <pre>
+ * POST /chat            {"sessionId": "optional", "message": "..."}  → {"sessionId": "...", "answer": "..."}
+ * DELETE /sessions/{id}                                              → 204
+ * </pre>
+ *
+ * <p>Admission control: at most {@link ChatServerOptions#maxInFlight()} assistant calls run at a
+ * time. A request that cannot get a slot within {@link ChatServerOptions#admissionTimeout()} is
+ * answered with {@code 429} and {@code Retry-After} instead of waiting in an unbounded queue. A
+ * second request for a session that is still being answered gets {@code 409}, since both would
+ * rewrite the same history, and so does deleting it: the answer would bring the history back.
+ *
+ * <p>The first message of a session has no history to depend on, so it is answered through the
+ * {@link SemanticAnswerCache}; a cached answer is written to the session's memory like an
+ * assistant answer, so follow-ups see it. Later messages always go to the assistant.
+ */
+public class ChatServer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatServer.class);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final SessionAssistant assistant;
+    private final ChatMemoryStore chatMemoryStore;
+    private final SemanticAnswerCache answerCache;
+    private final ChatServerOptions options;
+    private final Semaphore inFlight;
+    private final Set<String> activeSessions = ConcurrentHashMap.newKeySet();
+    private final ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpServer server;
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record ChatRequest(String sessionId, String message) {
+    }
+
+    record ChatReply(String sessionId, String answer) {
+    }
+
+    record ErrorReply(String error) {
+    }
+
+    /**
+     * @param chatMemoryStore the store behind the assistant's chat memories, used to delete sessions
+     *                        and to record first messages answered from the cache
+     * @param answerCache     answers the first message of a session
+     */
+    public ChatServer(SessionAssistant assistant, ChatMemoryStore chatMemoryStore, SemanticAnswerCache answerCache,
+                      ChatServerOptions options) {
+        this.assistant = assistant;
+        this.chatMemoryStore = chatMemoryStore;
+        this.answerCache = answerCache;
+        this.options = options;
+        this.inFlight = new Semaphore(options.maxInFlight());
+
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(options.port()), 0);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to bind chat server to port " + options.port(), e);
+        }
+        this.server.setExecutor(requests);
+        this.server.createContext("/chat", this::chat);
+        this.server.createContext("/sessions/", this::deleteSession);
+    }
+
+    public void start() {
+        server.start();
+        log.info("Chat server listening on port {}", port());
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        requests.shutdownNow();
+    }
+
+    private void chat(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            send(exchange, 405, new ErrorReply("Use POST"));
+            return;
+        }
+
+        ChatRequest request;
+        try (InputStream body = exchange.getRequestBody()) {
+            request = objectMapper.readValue(body, ChatRequest.class);
+        } catch (JsonProcessingException e) {
+            send(exchange, 400, new ErrorReply("Invalid JSON: " + e.getOriginalMessage()));
+            return;
+        }
+        if (request.message() == null || request.message().isBlank()) {
+            send(exchange, 400, new ErrorReply("message is required"));
+            return;
+        }
+        String sessionId = request.sessionId() == null || request.sessionId().isBlank()
+            ? UUID.randomUUID().toString()
+            : request.sessionId();
+
+        if (!activeSessions.add(sessionId)) {
+            send(exchange, 409, new ErrorReply("Session %s is still answering a previous message".formatted(sessionId)));
+            return;
+        }
+        try {
+            if (!inFlight.tryAcquire(options.admissionTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                send(exchange, 429, new ErrorReply("Too many concurrent requests, retry later"));
+                return;
+            }
+            try {
+                String answer = answer(sessionId, request.message());
+                send(exchange, 200, new ChatReply(sessionId, answer));
+            } catch (RuntimeException e) {
+                log.warn("Assistant failed for session {}", sessionId, e);
+                send(exchange, 500, new ErrorReply("Assistant failed: " + e.getMessage()));
+            } finally {
+                inFlight.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(exchange, 503, new ErrorReply("Server is shutting down"));
+        } finally {
+            activeSessions.remove(sessionId);
+        }
+    }
+
+    private String answer(String sessionId, String message) {
+        if (!chatMemoryStore.getMessages(sessionId).isEmpty()) {
+            return assistant.chat(sessionId, message);
+        }
+
+        long generation = answerCache.generation();
+        Optional<String> cached = answerCache.get(message);
+        if (cached.isPresent()) {
+            chatMemoryStore.updateMessages(sessionId, List.of(UserMessage.from(message), AiMessage.from(cached.get())));
+            return cached.get();
+        }
+        String answer = assistant.chat(sessionId, message);
+        answerCache.put(message, answer, generation);
+        return answer;
+    }
+
+    private void deleteSession(HttpExchange exchange) throws IOException {
+        if (!"DELETE".equals(exchange.getRequestMethod())) {
+            send(exchange, 405, new ErrorReply("Use DELETE"));
+            return;
+        }
+        String sessionId = exchange.getRequestURI().getPath().substring("/sessions/".length());
+        if (sessionId.isBlank()) {
+            send(exchange, 400, new ErrorReply("session id is required"));
+            return;
+        }
+
+        if (!activeSessions.add(sessionId)) {
+            send(exchange, 409, new ErrorReply("Session %s is still answering a message".formatted(sessionId)));
+            return;
+        }
+        try {
+            chatMemoryStore.deleteMessages(sessionId);
+            assistant.evictChatMemory(sessionId);
+        } finally {
+            activeSessions.remove(sessionId);
+        }
+        exchange.sendResponseHeaders(204, -1);
+        exchange.close();
+    }
+
+    private static void send(HttpExchange exchange, int status, Object reply) throws IOException {
+        byte[] body = objectMapper.writeValueAsBytes(reply);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream response = exchange.getResponseBody()) {
+            response.write(body);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package io.forest.langchain4j.hybridrag;
+
+import java.time.Duration;
+
+/**
+ * @param port              HTTP port of the {@link ChatServer}
+ * @param maxInFlight       concurrent assistant calls; more would only queue up inside LM Studio
+ * @param admissionTimeout  how long a request may wait for a free slot before it is answered
+ *                          with {@code 429 Too Many Requests}
+ */
+public record ChatServerOptions(int port, int maxInFlight, Duration admissionTimeout) {
+
+    public ChatServerOptions {
+        if (port < 0 || maxInFlight < 1 || admissionTimeout.isNegative()) {
+            throw new IllegalArgumentException("Invalid chat server options: port=%d max_in_flight=%d admission_timeout=%s"
+                .formatted(port, maxInFlight, admissionTimeout));
+        }
+    }
+
+    public static ChatServerOptions defaults() {
+        return new ChatServerOptions(8080, 4, Duration.ofMillis(250));
+    }
+}
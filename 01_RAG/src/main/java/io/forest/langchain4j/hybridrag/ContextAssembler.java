@@ -0,0 +1,238 @@
+package io.forest.langchain4j.hybridrag;
+
+import dev.langchain4j.model.TokenCountEstimator;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.ContentMetadata;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import io.forest.langchain4j.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * {@link ContentRetriever} decorator that turns the raw hits of a retriever into the context that
+ * is actually sent to the model.
+ *
+ * <ol>
+ *   <li>Near-duplicates are dropped: each segment gets a MinHash signature of its word shingles
+ *   and a segment whose estimated Jaccard similarity to a better ranked one reaches
+ *   {@link ContextOptions#duplicateSimilarity()} is removed. Overlapping splits and files copied
+ *   between folders otherwise fill the prompt with the same text.</li>
+ *   <li>The rest is reordered by Maximal Marginal Relevance over the stored segment vectors, see
+ *   {@link SegmentVectors}, so that the segments most likely to survive packing cover different
+ *   aspects of the question. The query vector comes from the query embedding model, which has
+ *   just embedded the same text for the search. Segments without a stored vector go last.</li>
+ *   <li>Segments are packed in that order while they fit into {@link ContextOptions#tokenBudget()};
+ *   one that does not fit is skipped in favour of smaller ones further down.</li>
+ * </ol>
+ *
+ * <p>A shorter prompt means less prefill time for the model and no requests rejected for
+ * exceeding its context window.
+ */
+public class ContextAssembler implements ContentRetriever {
+
+    private static final Logger log = LoggerFactory.getLogger(ContextAssembler.class);
+
+    private static final Metrics.Histogram assemblyLatency = RagMetrics.registry.stage("context_assembly");
+
+    private static final Metrics.Counter keptSegments = segments("kept");
+    private static final Metrics.Counter duplicateSegments = segments("duplicate");
+    private static final Metrics.Counter overBudgetSegments = segments("over_budget");
+
+    private final ContentRetriever delegate;
+    private final EmbeddingModel queryEmbeddingModel;
+    private final SegmentVectors segmentVectors;
+    private final TokenCountEstimator tokenCountEstimator;
+    private final ContextOptions options;
+
+    /**
+     * Seeds of the MinHash hash functions, fixed so that signatures are comparable across calls.
+     */
+    private final long[] seeds;
+
+    public ContextAssembler(ContentRetriever delegate, EmbeddingModel queryEmbeddingModel,
+                            SegmentVectors segmentVectors, TokenCountEstimator tokenCountEstimator,
+                            ContextOptions options) {
+        this.delegate = delegate;
+        this.queryEmbeddingModel = queryEmbeddingModel;
+        this.segmentVectors = segmentVectors;
+        this.tokenCountEstimator = tokenCountEstimator;
+        this.options = options;
+        this.seeds = new SplittableRandom(42).longs(options.minHashes()).toArray();
+    }
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        List<Content> contents = delegate.retrieve(query);
+
+        long startedAt = System.nanoTime();
+        List<Content> distinct = deduplicate(contents);
+        List<Content> ordered = distinct.size() > 1 ? maximalMarginalRelevance(query, distinct) : distinct;
+        List<Content> packed = pack(ordered);
+        assemblyLatency.recordSince(startedAt);
+
+        log.debug("Context of {} hits: {} near-duplicates, {} over the budget, {} kept",
+            contents.size(), contents.size() - distinct.size(), distinct.size() - packed.size(), packed.size());
+        return packed;
+    }
+
+    private List<Content> deduplicate(List<Content> contents) {
+        List<Content> distinct = new ArrayList<>(contents.size());
+        List<long[]> signatures = new ArrayList<>(contents.size());
+
+        for (Content content : contents) {
+            long[] signature = minHash(content.textSegment().text());
+            if (signatures.stream().anyMatch(it -> similarity(it, signature) >= options.duplicateSimilarity())) {
+                duplicateSegments.increment();
+                continue;
+            }
+            distinct.add(content);
+            signatures.add(signature);
+        }
+        return distinct;
+    }
+
+    private long[] minHash(String text) {
+        String[] words = text.toLowerCase(Locale.ROOT).split("\\W+");
+        long[] signature = new long[seeds.length];
+        Arrays.fill(signature, Long.MAX_VALUE);
+
+        int shingles = Math.max(1, words.length - options.shingleWords() + 1);
+        for (int start = 0; start < shingles; start++) {
+            long shingle = 0;
+            for (int i = start; i < Math.min(start + options.shingleWords(), words.length); i++) {
+                shingle = shingle * 31 + words[i].hashCode();
+            }
+            for (int i = 0; i < seeds.length; i++) {
+                signature[i] = Math.min(signature[i], mix(shingle ^ seeds[i]));
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Fraction of equal MinHash values, an unbiased estimate of the Jaccard similarity.
+     */
+    private static double similarity(long[] a, long[] b) {
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / a.length;
+    }
+
+    /**
+     * SplitMix64 finalizer, turning the seeded shingle hash into one of many independent hashes.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private List<Content> maximalMarginalRelevance(Query query, List<Content> contents) {
+        float[] queryVector = queryEmbeddingModel.embed(query.text()).content().vector();
+        Map<String, float[]> vectors = segmentVectors.find(contents.stream().map(ContextAssembler::id).toList());
+
+        List<Content> candidates = new ArrayList<>();
+        List<float[]> candidateVectors = new ArrayList<>();
+        List<Content> withoutVector = new ArrayList<>();
+        for (Content content : contents) {
+            float[] vector = vectors.get(id(content));
+            if (vector == null) {
+                withoutVector.add(content);
+            } else {
+                candidates.add(content);
+                candidateVectors.add(vector);
+            }
+        }
+
+        int n = candidates.size();
+        double[] relevance = new double[n];
+        double[] redundancy = new double[n];
+        Arrays.fill(redundancy, Double.NEGATIVE_INFINITY);
+        for (int i = 0; i < n; i++) {
+            relevance[i] = cosine(queryVector, candidateVectors.get(i));
+        }
+
+        List<Content> ordered = new ArrayList<>(contents.size());
+        boolean[] selected = new boolean[n];
+        for (int round = 0; round < n; round++) {
+            int best = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                if (selected[i]) {
+                    continue;
+                }
+                double score = round == 0
+                    ? relevance[i]
+                    : options.mmrLambda() * relevance[i] - (1 - options.mmrLambda()) * redundancy[i];
+                if (score > bestScore) {
+                    best = i;
+                    bestScore = score;
+                }
+            }
+
+            selected[best] = true;
+            ordered.add(candidates.get(best));
+            for (int i = 0; i < n; i++) {
+                if (!selected[i]) {
+                    redundancy[i] = Math.max(redundancy[i], cosine(candidateVectors.get(i), candidateVectors.get(best)));
+                }
+            }
+        }
+        ordered.addAll(withoutVector);
+        return ordered;
+    }
+
+    /**
+     * Cosine similarity; the OpenSearch vectors may be quantized and are not normalized.
+     */
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? 0 : dot / Math.sqrt(normA * normB);
+    }
+
+    private List<Content> pack(List<Content> contents) {
+        List<Content> packed = new ArrayList<>(contents.size());
+        int remaining = options.tokenBudget();
+
+        for (Content content : contents) {
+            int tokens = tokenCountEstimator.estimateTokenCountInText(content.textSegment().text());
+            if (tokens > remaining) {
+                overBudgetSegments.increment();
+                continue;
+            }
+            packed.add(content);
+            remaining -= tokens;
+        }
+        keptSegments.add(packed.size());
+        return packed;
+    }
+
+    private static String id(Content content) {
+        return String.valueOf(content.metadata().get(ContentMetadata.EMBEDDING_ID));
+    }
+
+    private static Metrics.Counter segments(String outcome) {
+        return RagMetrics.registry.counter("rag_context_segments_total", "Retrieved segments by what context assembly did with them",
+            "outcome", outcome);
+    }
+}
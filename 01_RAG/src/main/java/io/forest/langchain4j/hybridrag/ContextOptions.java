@@ -0,0 +1,38 @@
+package io.forest.langchain4j.hybridrag;
+
+/**
+ * Settings of the {@link ContextAssembler}.
+ *
+ * @param shingleWords          words per shingle when comparing segment texts
+ * @param minHashes             MinHash signature length; the similarity estimate has a standard
+ *                              error of about {@code 1 / sqrt(minHashes)}
+ * @param duplicateSimilarity   estimated Jaccard similarity of the shingle sets from which a lower
+ *                              ranked segment counts as a near-duplicate and is dropped
+ * @param mmrLambda             Maximal Marginal Relevance trade-off, 1 ranks by relevance only and
+ *                              0 by novelty only
+ * @param tokenBudget           tokens the retrieved segments may take up in the prompt
+ */
+public record ContextOptions(
+    int shingleWords,
+    int minHashes,
+    double duplicateSimilarity,
+    double mmrLambda,
+    int tokenBudget) {
+
+    public ContextOptions {
+        if (shingleWords < 1 || minHashes < 1 || tokenBudget < 1) {
+            throw new IllegalArgumentException("shingleWords, minHashes and tokenBudget must be positive");
+        }
+        if (duplicateSimilarity <= 0 || duplicateSimilarity > 1 || mmrLambda < 0 || mmrLambda > 1) {
+            throw new IllegalArgumentException("duplicateSimilarity must be in (0, 1] and mmrLambda in [0, 1]");
+        }
+    }
+
+    /**
+     * Sized for {@code phi-3-mini-4k-instruct}: of its 4096 tokens, 1500 go to retrieved segments,
+     * leaving room for the prompt template, ten messages of chat memory and the answer.
+     */
+    public static ContextOptions defaults() {
+        return new ContextOptions(3, 64, 0.8, 0.7, 1500);
+    }
+}
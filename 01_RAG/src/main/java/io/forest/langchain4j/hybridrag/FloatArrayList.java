@@ -0,0 +1,27 @@
+package io.forest.langchain4j.hybridrag;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Read-only {@code List<Float>} view over a {@code float[]}, for client APIs that only accept lists.
+ * Unlike {@code Embedding.vectorAsList()} it does not copy the vector into a boxed list up front.
+ */
+final class FloatArrayList extends AbstractList<Float> implements RandomAccess {
+
+    private final float[] values;
+
+    FloatArrayList(float[] values) {
+        this.values = values;
+    }
+
+    @Override
+    public Float get(int index) {
+        return values[index];
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+}
@@ -0,0 +1,134 @@
+package io.forest.langchain4j.hybridrag;
+
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import io.forest.langchain4j.metrics.Metrics;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.FieldValue;
+import org.opensearch.client.opensearch.core.SearchRequest;
+import org.opensearch.client.opensearch.core.SearchResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Client-side alternative to {@link HybridContentRetriever}: instead of the server-side
+ * {@code hybrid} query and {@code rrf-pipeline}, the BM25 {@code match} query and the {@code knn}
+ * query run as two separate searches on virtual threads and are fused locally with
+ * {@link ReciprocalRankFusion}.
+ *
+ * <p>The query embedding is computed inside the kNN leg, so it overlaps with the BM25 search.
+ * Each leg gets {@link FusionOptions#legTimeout()}; a leg that is late is cancelled by
+ * interrupting its thread, which aborts its HTTP request, and the answer is built from the other
+ * leg alone, as it is when a leg fails.
+ */
+public record FusionContentRetriever(OpenSearchClient client, EmbeddingModel embeddingModel, String indexName,
+                                     FusionOptions options) implements ContentRetriever {
+
+    private final static Logger log = LoggerFactory.getLogger(FusionContentRetriever.class);
+
+    private static final ExecutorService legs = Executors.newVirtualThreadPerTaskExecutor();
+
+    private static final Metrics.Histogram embeddingLatency = RagMetrics.registry.stage("query_embedding");
+
+    @Override
+    public List<Content> retrieve(final Query query) {
+        long deadline = System.nanoTime() + options.legTimeout().toNanos();
+
+        Future<List<SegmentHit>> textLeg = legs.submit(() -> textSearch(query.text()));
+        Future<List<SegmentHit>> knnLeg = legs.submit(() -> knnSearch(query.text()));
+
+        List<SegmentHit> textHits = await("text", textLeg, deadline);
+        List<SegmentHit> knnHits = await("knn", knnLeg, deadline);
+
+        if (textHits == null && knnHits == null) {
+            throw new RuntimeException("Both retrieval legs failed for OpenSearch index " + this.indexName);
+        }
+
+        List<SegmentHit> fused = new ReciprocalRankFusion(options.rankConstant()).fuse(
+            List.of(textHits == null ? List.of() : textHits, knnHits == null ? List.of() : knnHits),
+            List.of(options.textWeight(), options.knnWeight()),
+            options.maxResults());
+
+        return fused.stream()
+            .map(SegmentHit::toContent)
+            .toList();
+    }
+
+    private List<SegmentHit> await(String leg, Future<List<SegmentHit>> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("Retrieval leg {} exceeded {} ms, answering without it", leg, options.legTimeout().toMillis());
+            return null;
+        } catch (ExecutionException e) {
+            log.warn("Retrieval leg {} failed, answering without it", leg, e.getCause());
+            return null;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for retrieval leg " + leg, e);
+        }
+    }
+
+    private List<SegmentHit> textSearch(String text) {
+        try {
+            SearchResponse<SegmentHit.Source> searchResponse = SegmentSearch.search(client, SearchRequest.of(s -> s
+                    .index(this.indexName)
+                    .size(options.textK())
+                    .source(src -> src.filter(f -> f.includes(SegmentHit.SOURCE_FIELDS)))
+                    // without an exact total the BM25 leg can skip non-competitive documents
+                    .trackTotalHits(t -> t.enabled(false))
+                    .query(q -> q.match(m -> m
+                        .field("text")
+                        .query(FieldValue.of(text))))
+                ));
+
+            return toHits(searchResponse);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to run text search against OpenSearch", e);
+        }
+    }
+
+    private List<SegmentHit> knnSearch(String text) {
+        long startedAt = System.nanoTime();
+        float[] vector = this.embeddingModel.embed(text).content().vector();
+        embeddingLatency.recordSince(startedAt);
+        try {
+            SearchResponse<SegmentHit.Source> searchResponse = SegmentSearch.search(client, SearchRequest.of(s -> s
+                    .index(this.indexName)
+                    .size(options.knnK())
+                    .source(src -> src.filter(f -> f.includes(SegmentHit.SOURCE_FIELDS)))
+                    .trackTotalHits(t -> t.enabled(false))
+                    .query(q -> q.knn(kn -> kn
+                        .field("vector")
+                        .vector(new FloatArrayList(vector))
+                        .k(options.knnK())))
+                ));
+
+            return toHits(searchResponse);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to run knn search against OpenSearch", e);
+        }
+    }
+
+    private static List<SegmentHit> toHits(SearchResponse<SegmentHit.Source> searchResponse) {
+        return searchResponse.hits()
+            .hits()
+            .stream()
+            .map(SegmentHit::from)
+            .toList();
+    }
+}
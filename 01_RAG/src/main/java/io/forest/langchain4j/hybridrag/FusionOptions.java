@@ -0,0 +1,28 @@
+package io.forest.langchain4j.hybridrag;
+
+import java.time.Duration;
+
+/**
+ * Settings of the {@link FusionContentRetriever}.
+ *
+ * @param textK        hits requested from the BM25 {@code match} leg
+ * @param knnK         neighbours requested from the {@code knn} leg
+ * @param textWeight   RRF weight of the BM25 leg
+ * @param knnWeight    RRF weight of the kNN leg
+ * @param rankConstant RRF rank constant, 60 in the original paper and in OpenSearch
+ * @param maxResults   number of fused hits handed to the model
+ * @param legTimeout   time budget per leg; a leg that misses it is dropped from the fusion
+ */
+public record FusionOptions(
+    int textK,
+    int knnK,
+    double textWeight,
+    double knnWeight,
+    int rankConstant,
+    int maxResults,
+    Duration legTimeout) {
+
+    public static FusionOptions defaults() {
+        return new FusionOptions(10, 10, 1.0, 1.0, 60, 10, Duration.ofSeconds(2));
+    }
+}
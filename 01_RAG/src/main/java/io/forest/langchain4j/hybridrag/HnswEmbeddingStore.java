@@ -0,0 +1,699 @@
+package io.forest.langchain4j.hybridrag;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process {@link EmbeddingStore} for edge and CI deployments without the OpenSearch container.
+ *
+ * <p>Vectors are L2-normalized and kept off-heap in node order, and an HNSW graph is built over
+ * them, so cosine similarity is a plain dot product. {@link #save(Path)} writes vectors, graph
+ * and segments to a single file. {@link #load(Path, int)} memory-maps the vector region in place and
+ * reads only the graph and the segment texts, so a restart needs no re-embedding and no copying
+ * of vectors onto the heap. The vectors are copied to a writable buffer only on the first add
+ * after a load.
+ *
+ * <p>Segment texts also feed a {@link Bm25Index}, which gives {@link LocalHybridContentRetriever}
+ * the text leg of a hybrid search. Removed ids are tombstoned. They stay in the graph for
+ * navigation but never show up in results. Once more than a quarter of the nodes are tombstones,
+ * the graph is rebuilt from the live nodes, so replaced segments do not pile up in the file and
+ * widen every search.
+ *
+ * <p>Writes take an exclusive lock and searches a shared one.
+ */
+public class HnswEmbeddingStore implements EmbeddingStore<TextSegment> {
+
+    private static final int MAGIC = 0x484E5357;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final double MAX_DELETED_RATIO = 0.25;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final HnswOptions options;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private ByteBuffer vectorBytes;
+    private FloatBuffer vectors;
+    private boolean vectorsWritable;
+
+    private final List<int[][]> links = new ArrayList<>();
+    private final List<String> ids = new ArrayList<>();
+    private final List<TextSegment> segments = new ArrayList<>();
+    private final Map<String, Integer> nodesById = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private Bm25Index bm25 = new Bm25Index();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public HnswEmbeddingStore(HnswOptions options) {
+        this.options = options;
+        this.levelMultiplier = 1 / Math.log(options.m());
+        allocate(Math.min(1024, maxNodes()));
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), List.of(textSegment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> generated = generateIds(embeddings.size());
+        addAll(generated, embeddings, null);
+        return generated;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> embedded) {
+        List<String> generated = generateIds(embeddings.size());
+        addAll(generated, embeddings, embedded);
+        return generated;
+    }
+
+    /**
+     * Adding an id that is already present replaces the previous vector and segment.
+     */
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded) {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                insert(ids.get(i), embeddings.get(i).vector(), embedded == null ? null : embedded.get(i));
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        lock.writeLock().lock();
+        try {
+            ids.forEach(this::tombstone);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        lock.writeLock().lock();
+        try {
+            for (int node = 0; node < segments.size(); node++) {
+                TextSegment segment = segments.get(node);
+                if (!deleted.get(node) && segment != null && filter.test(segment.metadata())) {
+                    tombstone(ids.get(node));
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        lock.writeLock().lock();
+        try {
+            List.copyOf(nodesById.keySet()).forEach(this::tombstone);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        float[] query = normalized(request.queryEmbedding().vector());
+        Filter filter = request.filter();
+
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return new EmbeddingSearchResult<>(List.of());
+            }
+            // tombstoned and filtered-out nodes still occupy candidate slots, so widen the beam
+            int ef = Math.max(options.efSearch(), request.maxResults())
+                + Math.min(deleted.cardinality(), options.efSearch());
+
+            List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>();
+            for (Neighbour neighbour : searchLayer(query, descend(query, 0), ef, 0)) {
+                if (matches.size() == request.maxResults()) {
+                    break;
+                }
+                int node = neighbour.node();
+                TextSegment segment = segments.get(node);
+                double score = RelevanceScore.fromCosineSimilarity(1 - neighbour.distance());
+
+                if (deleted.get(node)
+                    || score < request.minScore()
+                    || filter != null && (segment == null || !filter.test(segment.metadata()))) {
+                    continue;
+                }
+                matches.add(new EmbeddingMatch<>(score, ids.get(node), Embedding.from(vector(node)), segment));
+            }
+            return new EmbeddingSearchResult<>(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * BM25 search over the stored segment texts, best hit first.
+     */
+    public List<SegmentHit> textSearch(String query, int maxResults) {
+        lock.readLock().lock();
+        try {
+            return bm25.search(query, maxResults)
+                .stream()
+                .map(it -> {
+                    TextSegment segment = segments.get(it.document());
+                    return new SegmentHit(ids.get(it.document()), segment.text(), segment.metadata().toMap(), it.score());
+                })
+                .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The stored, normalized vectors of the given ids; unknown and removed ids are left out.
+     */
+    public Map<String, float[]> vectors(Collection<String> ids) {
+        lock.readLock().lock();
+        try {
+            Map<String, float[]> found = new HashMap<>();
+            for (String id : ids) {
+                Integer node = nodesById.get(id);
+                if (node != null && !deleted.get(node)) {
+                    found.put(id, vector(node));
+                }
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodesById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Persists the store to {@code path}, replacing it atomically.
+     *
+     * <pre>
+     * header   magic, version, dimension, m, ef_construction, nodes, entry point, max level (64 bytes)
+     * vectors  nodes × dimension little-endian float32, memory-mapped by {@link #load(Path, int)}
+     * graph    per node: deleted flag, level, per layer: link count and links
+     * segments per node: id, text, metadata as JSON
+     * </pre>
+     */
+    public void save(Path path) {
+        lock.readLock().lock();
+        try {
+            Path absolute = path.toAbsolutePath();
+            Files.createDirectories(absolute.getParent());
+            Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                int nodes = links.size();
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(options.dimension())
+                    .putInt(options.m())
+                    .putInt(options.efConstruction())
+                    .putInt(nodes)
+                    .putInt(entryPoint)
+                    .putInt(maxLevel);
+                header.clear();
+                channel.write(header);
+
+                ByteBuffer vectorRegion = vectorBytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+                vectorRegion.clear().limit(nodes * options.dimension() * Float.BYTES);
+                while (vectorRegion.hasRemaining()) {
+                    channel.write(vectorRegion);
+                }
+
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+                for (int node = 0; node < nodes; node++) {
+                    int[][] layers = links.get(node);
+                    out.writeBoolean(deleted.get(node));
+                    out.writeInt(layers.length);
+                    for (int[] layer : layers) {
+                        out.writeInt(layer.length);
+                        for (int link : layer) {
+                            out.writeInt(link);
+                        }
+                    }
+                }
+                for (int node = 0; node < nodes; node++) {
+                    TextSegment segment = segments.get(node);
+                    writeString(out, ids.get(node));
+                    writeString(out, segment == null ? null : segment.text());
+                    writeString(out, segment == null ? null : objectMapper.writeValueAsString(segment.metadata().toMap()));
+                }
+                out.flush();
+            }
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save HNSW store to " + path, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Opens a store written by {@link #save(Path)}, using {@code efSearch} for queries.
+     */
+    public static HnswEmbeddingStore load(Path path, int efSearch) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // fill the header
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IllegalStateException("Not an HNSW store file: " + path);
+            }
+            int dimension = header.getInt();
+            int m = header.getInt();
+            int efConstruction = header.getInt();
+            int nodes = header.getInt();
+
+            HnswEmbeddingStore store = new HnswEmbeddingStore(new HnswOptions(dimension, m, efConstruction, efSearch));
+            store.entryPoint = header.getInt();
+            store.maxLevel = header.getInt();
+
+            long vectorRegionBytes = (long) nodes * dimension * Float.BYTES;
+            store.vectorBytes = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, vectorRegionBytes)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            store.vectors = store.vectorBytes.asFloatBuffer();
+            store.vectorsWritable = false;
+
+            channel.position(HEADER_BYTES + vectorRegionBytes);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            for (int node = 0; node < nodes; node++) {
+                if (in.readBoolean()) {
+                    store.deleted.set(node);
+                }
+                int[][] layers = new int[in.readInt()][];
+                for (int layer = 0; layer < layers.length; layer++) {
+                    layers[layer] = new int[in.readInt()];
+                    for (int i = 0; i < layers[layer].length; i++) {
+                        layers[layer][i] = in.readInt();
+                    }
+                }
+                store.links.add(layers);
+            }
+            for (int node = 0; node < nodes; node++) {
+                String id = readString(in);
+                String text = readString(in);
+                String metadata = readString(in);
+                TextSegment segment = text == null
+                    ? null
+                    : TextSegment.from(text, Metadata.from(objectMapper.readValue(metadata, new TypeReference<Map<String, Object>>() {})));
+
+                store.ids.add(id);
+                store.segments.add(segment);
+                if (!store.deleted.get(node)) {
+                    store.nodesById.put(id, node);
+                    if (segment != null) {
+                        store.bm25.add(node, text);
+                    }
+                }
+            }
+            store.compactIfNeeded();
+            return store;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load HNSW store from " + path, e);
+        }
+    }
+
+    private void insert(String id, float[] embedding, TextSegment segment) {
+        if (embedding.length != options.dimension()) {
+            throw new IllegalArgumentException("Expected %d dimensions but got %d"
+                .formatted(options.dimension(), embedding.length));
+        }
+        tombstone(id);
+
+        int node = links.size();
+        float[] vector = normalized(embedding);
+        ensureCapacity(node + 1);
+        vectors.put(node * options.dimension(), vector);
+
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        int[][] layers = new int[level + 1][];
+        for (int layer = 0; layer <= level; layer++) {
+            layers[layer] = new int[0];
+        }
+        links.add(layers);
+        ids.add(id);
+        segments.add(segment);
+        nodesById.put(id, node);
+        if (segment != null) {
+            bm25.add(node, segment.text());
+        }
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int nearest = descend(vector, level);
+        for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+            List<Neighbour> candidates = searchLayer(vector, nearest, options.efConstruction(), layer);
+            List<Neighbour> selected = selectNeighbours(candidates, maxLinks(layer));
+
+            layers[layer] = selected.stream().mapToInt(Neighbour::node).toArray();
+            for (Neighbour neighbour : selected) {
+                link(neighbour.node(), node, layer);
+            }
+            nearest = candidates.get(0).node();
+        }
+
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    private void tombstone(String id) {
+        Integer node = nodesById.remove(id);
+        if (node != null) {
+            deleted.set(node);
+            TextSegment segment = segments.get(node);
+            if (segment != null) {
+                bm25.remove(node, segment.text());
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the graph from the live nodes once tombstones exceed {@link #MAX_DELETED_RATIO} of
+     * all nodes. The live nodes are re-inserted in their current order and get new ordinals.
+     */
+    private void compactIfNeeded() {
+        int deletedNodes = deleted.cardinality();
+        if (deletedNodes == 0 || deletedNodes <= links.size() * MAX_DELETED_RATIO) {
+            return;
+        }
+        int nodes = links.size();
+        List<String> liveIds = new ArrayList<>(nodes - deletedNodes);
+        List<float[]> liveVectors = new ArrayList<>(nodes - deletedNodes);
+        List<TextSegment> liveSegments = new ArrayList<>(nodes - deletedNodes);
+        for (int node = deleted.nextClearBit(0); node < nodes; node = deleted.nextClearBit(node + 1)) {
+            liveIds.add(ids.get(node));
+            liveVectors.add(vector(node));
+            liveSegments.add(segments.get(node));
+        }
+
+        links.clear();
+        ids.clear();
+        segments.clear();
+        nodesById.clear();
+        deleted.clear();
+        bm25 = new Bm25Index();
+        entryPoint = -1;
+        maxLevel = -1;
+        allocate(Math.min(Math.max(1024, liveIds.size()), maxNodes()));
+
+        for (int i = 0; i < liveIds.size(); i++) {
+            insert(liveIds.get(i), liveVectors.get(i), liveSegments.get(i));
+        }
+    }
+
+    /**
+     * Greedy walk from the entry point down to {@code level + 1}, returning the closest node found.
+     */
+    private int descend(float[] query, int level) {
+        int current = entryPoint;
+        float currentDistance = distance(query, current);
+
+        for (int layer = maxLevel; layer > level; layer--) {
+            boolean improved = true;
+            while (improved) {
+                improved = false;
+                for (int candidate : links.get(current)[layer]) {
+                    float candidateDistance = distance(query, candidate);
+                    if (candidateDistance < currentDistance) {
+                        current = candidate;
+                        currentDistance = candidateDistance;
+                        improved = true;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Beam search on one layer; returns up to {@code ef} nodes, closest first.
+     */
+    private List<Neighbour> searchLayer(float[] query, int entry, int ef, int layer) {
+        BitSet visited = new BitSet(links.size());
+        PriorityQueue<Neighbour> candidates = new PriorityQueue<>(Comparator.comparingDouble(Neighbour::distance));
+        PriorityQueue<Neighbour> results = new PriorityQueue<>(Comparator.comparingDouble(Neighbour::distance).reversed());
+
+        Neighbour start = new Neighbour(entry, distance(query, entry));
+        visited.set(entry);
+        candidates.add(start);
+        results.add(start);
+
+        while (!candidates.isEmpty()) {
+            Neighbour closest = candidates.poll();
+            if (closest.distance() > results.peek().distance() && results.size() >= ef) {
+                break;
+            }
+            int[][] layers = links.get(closest.node());
+            if (layer >= layers.length) {
+                continue;
+            }
+            for (int candidate : layers[layer]) {
+                if (visited.get(candidate)) {
+                    continue;
+                }
+                visited.set(candidate);
+
+                float candidateDistance = distance(query, candidate);
+                if (results.size() < ef || candidateDistance < results.peek().distance()) {
+                    Neighbour neighbour = new Neighbour(candidate, candidateDistance);
+                    candidates.add(neighbour);
+                    results.add(neighbour);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        List<Neighbour> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparingDouble(Neighbour::distance));
+        return sorted;
+    }
+
+    /**
+     * HNSW neighbour-selection heuristic: a candidate is kept only if it is closer to the base node
+     * than to every neighbour kept so far, which spreads links in different directions. Remaining
+     * slots are back-filled with the closest pruned candidates to keep small graphs connected.
+     */
+    private List<Neighbour> selectNeighbours(List<Neighbour> candidates, int maxLinks) {
+        List<Neighbour> selected = new ArrayList<>(maxLinks);
+        List<Neighbour> pruned = new ArrayList<>();
+
+        for (Neighbour candidate : candidates) {
+            if (selected.size() == maxLinks) {
+                break;
+            }
+            boolean diverse = true;
+            for (Neighbour kept : selected) {
+                if (distance(candidate.node(), kept.node()) < candidate.distance()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            (diverse ? selected : pruned).add(candidate);
+        }
+        for (int i = 0; i < pruned.size() && selected.size() < maxLinks; i++) {
+            selected.add(pruned.get(i));
+        }
+        return selected;
+    }
+
+    private void link(int from, int to, int layer) {
+        int[][] layers = links.get(from);
+        int[] current = layers[layer];
+
+        if (current.length < maxLinks(layer)) {
+            int[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = to;
+            layers[layer] = grown;
+            return;
+        }
+
+        List<Neighbour> candidates = new ArrayList<>(current.length + 1);
+        for (int link : current) {
+            candidates.add(new Neighbour(link, distance(from, link)));
+        }
+        candidates.add(new Neighbour(to, distance(from, to)));
+        candidates.sort(Comparator.comparingDouble(Neighbour::distance));
+
+        layers[layer] = selectNeighbours(candidates, maxLinks(layer)).stream()
+            .mapToInt(Neighbour::node)
+            .toArray();
+    }
+
+    private int maxLinks(int layer) {
+        return layer == 0 ? 2 * options.m() : options.m();
+    }
+
+    private float distance(float[] query, int node) {
+        int offset = node * options.dimension();
+        float dot = 0;
+        for (int i = 0; i < query.length; i++) {
+            dot += query[i] * vectors.get(offset + i);
+        }
+        return 1 - dot;
+    }
+
+    private float distance(int a, int b) {
+        int offsetA = a * options.dimension();
+        int offsetB = b * options.dimension();
+        float dot = 0;
+        for (int i = 0; i < options.dimension(); i++) {
+            dot += vectors.get(offsetA + i) * vectors.get(offsetB + i);
+        }
+        return 1 - dot;
+    }
+
+    private float[] vector(int node) {
+        float[] vector = new float[options.dimension()];
+        vectors.get(node * options.dimension(), vector);
+        return vector;
+    }
+
+    /**
+     * The vectors live in one direct buffer, which holds at most 2 GiB: about 1.4 million nodes of
+     * 384 dimensions.
+     */
+    private void ensureCapacity(int nodes) {
+        int capacity = vectors.capacity() / options.dimension();
+        if (vectorsWritable && nodes <= capacity) {
+            return;
+        }
+        int maxNodes = maxNodes();
+        if (nodes > maxNodes) {
+            throw new IllegalStateException("HNSW store full: at most %d vectors of %d dimensions fit in one buffer"
+                .formatted(maxNodes, options.dimension()));
+        }
+        ByteBuffer previous = vectorBytes;
+        allocate((int) Math.min(maxNodes, Math.max(nodes, 2L * capacity)));
+        vectorBytes.put(0, previous, 0, links.size() * options.dimension() * Float.BYTES);
+    }
+
+    private int maxNodes() {
+        return Integer.MAX_VALUE / (options.dimension() * Float.BYTES);
+    }
+
+    private void allocate(int nodes) {
+        long bytes = (long) nodes * options.dimension() * Float.BYTES;
+        vectorBytes = ByteBuffer.allocateDirect(Math.toIntExact(bytes)).order(ByteOrder.LITTLE_ENDIAN);
+        vectors = vectorBytes.asFloatBuffer();
+        vectorsWritable = true;
+    }
+
+    private static float[] normalized(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = norm == 0 ? 0 : (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        return length < 0 ? null : new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private record Neighbour(int node, float distance) {
+    }
+}
@@ -0,0 +1,28 @@
+package io.forest.langchain4j.hybridrag;
+
+/**
+ * HNSW graph parameters of the {@link HnswEmbeddingStore}, named after the OpenSearch
+ * {@code knn_vector} method parameters they mirror.
+ *
+ * @param dimension      vector dimension, 384 for all-MiniLM-L6-v2
+ * @param m              links per node on the upper layers; layer 0 keeps {@code 2 * m}
+ * @param efConstruction candidate list size while inserting
+ * @param efSearch       candidate list size while searching
+ */
+public record HnswOptions(int dimension, int m, int efConstruction, int efSearch) {
+
+    public HnswOptions {
+        if (dimension < 1 || m < 2 || efConstruction < 1 || efSearch < 1) {
+            throw new IllegalArgumentException(
+                "Invalid HNSW options: dimension=%d m=%d ef_construction=%d ef_search=%d"
+                    .formatted(dimension, m, efConstruction, efSearch));
+        }
+    }
+
+    /**
+     * Same values as the {@code sample-index} settings created by {@link Application}.
+     */
+    public static HnswOptions defaults() {
+        return new HnswOptions(384, 16, 100, 100);
+    }
+}
@@ -1,39 +1,37 @@
 package io.forest.langchain4j.hybridrag;
 
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.rag.content.Content;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
 import dev.langchain4j.rag.query.Query;
+import io.forest.langchain4j.metrics.Metrics;
 import org.opensearch.client.opensearch.OpenSearchClient;
 import org.opensearch.client.opensearch._types.FieldValue;
-import org.opensearch.client.opensearch._types.query_dsl.MatchQuery;
+import org.opensearch.client.opensearch.core.SearchRequest;
 import org.opensearch.client.opensearch.core.SearchResponse;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 
 public record HybridContentRetriever(OpenSearchClient client, EmbeddingModel embeddingModel,
                                      String indexName) implements ContentRetriever {
 
-    private final static Logger log = LoggerFactory.getLogger(HybridContentRetriever.class);
+    private static final Metrics.Histogram embeddingLatency = RagMetrics.registry.stage("query_embedding");
+
+    private static final Metrics.Counter textOnlyHits = hits("text");
+    private static final Metrics.Counter knnOnlyHits = hits("knn");
+    private static final Metrics.Counter bothHits = hits("both");
 
     @Override
     public List<Content> retrieve(final Query query) {
-        try {
-            List<org.opensearch.client.opensearch._types.query_dsl.Query> queries = new ArrayList<>();
-
-            MatchQuery matchQuery = new MatchQuery.Builder()
-                .field("text")
-                .query(FieldValue.of(query.text()))
-                .build();
-            queries.add(org.opensearch.client.opensearch._types.query_dsl.Query.of(q -> q.match(matchQuery)));
+        long startedAt = System.nanoTime();
+        float[] vector = this.embeddingModel.embed(query.text()).content().vector();
+        embeddingLatency.recordSince(startedAt);
 
-            SearchResponse<ObjectNode> searchResponse = client.search(s -> s
+        try {
+            SearchResponse<SegmentHit.Source> searchResponse = SegmentSearch.search(client, SearchRequest.of(s -> s
                     .index(this.indexName)
+                    .source(src -> src.filter(f -> f.includes(SegmentHit.SOURCE_FIELDS)))
                     .query(q -> q.hybrid(h -> h
                         .queries(
                             textQuery -> textQuery.match(m -> m
@@ -44,30 +42,40 @@ public record HybridContentRetriever(OpenSearchClient client, EmbeddingModel emb
                         .queries(
                             knnQuery -> knnQuery.knn(kn -> kn
                                 .field("vector")
-                                .vector(this.embeddingModel.embed(query.text()).content().vectorAsList())
+                                .vector(new FloatArrayList(vector))
                                 .k(10)
                                 .queryName("knnQuery"))
                         )
                     ))
-                , ObjectNode.class);
+                ));
 
             return searchResponse.hits()
                 .hits()
                 .stream()
-                //.map(Document::toTextSegment)
                 .map(it -> {
-                    ObjectNode source = it.source();
-                    String text = source.has("text") ? source.get("text").asText() : "";
-
-                    List<String> strings = it.matchedQueries();
-                    log.info("---- textQuery={} knnQuery={}", strings.contains("textQuery"), strings.contains("knnQuery"));
-
-                    return Content.from(text);
+                    countMatch(it.matchedQueries());
+                    return SegmentHit.from(it).toContent();
                 })
-
                 .toList();
         } catch (IOException e) {
             throw new RuntimeException("Failed to retrieve content from OpenSearch", e);
         }
     }
+
+    private static void countMatch(List<String> matchedQueries) {
+        boolean text = matchedQueries.contains("textQuery");
+        boolean knn = matchedQueries.contains("knnQuery");
+        if (text && knn) {
+            bothHits.increment();
+        } else if (text) {
+            textOnlyHits.increment();
+        } else if (knn) {
+            knnOnlyHits.increment();
+        }
+    }
+
+    private static Metrics.Counter hits(String matched) {
+        return RagMetrics.registry.counter("rag_hybrid_hits_total", "Hybrid search hits by the sub-queries they matched",
+            "matched", matched);
+    }
 }
@@ -0,0 +1,168 @@
+package io.forest.langchain4j.hybridrag;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Re-ingests only what changed since the last run, driven by an {@link IngestionManifest}.
+ *
+ * <p>Every document is hashed on the way into the {@link IngestionPipeline}; unchanged documents
+ * are dropped before splitting, so embedding and indexing cost scales with the diff. Segment ids
+ * are derived from path and content hash, so re-running after a failed sync overwrites instead of
+ * duplicating. Segments of changed documents are deleted after their replacements are indexed,
+ * segments of documents that disappeared from the source are deleted at the end.
+ *
+ * <p>{@link #sync} does not write the manifest. The caller hands the report to {@link #commit} once
+ * the segments are durable, e.g. after the store is saved, so a crash in between leaves the old
+ * manifest and the next sync re-ingests instead of skipping documents the store never got.
+ */
+public class IncrementalIngestor {
+
+    private static final Logger log = LoggerFactory.getLogger(IncrementalIngestor.class);
+
+    static final String GITHUB_FILE_PATH = "github_file_path";
+
+    private final IngestionPipeline ingestionPipeline;
+    private final SegmentSink segmentSink;
+    private final Path manifestPath;
+
+    public IncrementalIngestor(IngestionPipeline ingestionPipeline, SegmentSink segmentSink, Path manifestPath) {
+        this.ingestionPipeline = ingestionPipeline;
+        this.segmentSink = segmentSink;
+        this.manifestPath = manifestPath;
+    }
+
+    public SyncReport sync(Stream<Document> documents) {
+        return sync(documents, IngestionManifest.load(manifestPath));
+    }
+
+    /**
+     * Syncs against the given manifest instead of the persisted one, e.g. {@link IngestionManifest#empty()}
+     * after the index was recreated.
+     */
+    public SyncReport sync(Stream<Document> documents, IngestionManifest previous) {
+        Map<String, IngestionManifest.Entry> next = new ConcurrentHashMap<>();
+        Map<String, String> pendingHashes = new ConcurrentHashMap<>();
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        List<String> replaced = new ArrayList<>();
+        AtomicInteger added = new AtomicInteger();
+        AtomicInteger changed = new AtomicInteger();
+        AtomicInteger unchanged = new AtomicInteger();
+
+        Stream<Document> diff = documents.filter(document -> {
+            String path = pathOf(document);
+            String hash = sha256(document.text());
+            IngestionManifest.Entry entry = previous.documents().get(path);
+
+            if (!seen.add(path)) {
+                throw new IllegalStateException("Duplicate document path " + path);
+            }
+            if (entry == null) {
+                added.incrementAndGet();
+            } else if (entry.hash().equals(hash)) {
+                unchanged.incrementAndGet();
+                next.put(path, entry);
+                return false;
+            } else {
+                changed.incrementAndGet();
+                synchronized (replaced) {
+                    replaced.addAll(entry.segmentIds());
+                }
+            }
+            pendingHashes.put(path, hash);
+            return true;
+        });
+
+        IngestionReport ingestionReport = ingestionPipeline.ingest(diff, (document, segments) -> {
+            String path = pathOf(document);
+            String hash = pendingHashes.get(path);
+            List<String> ids = segmentIds(path, hash, segments);
+            next.put(path, new IngestionManifest.Entry(hash, ids));
+            return ids;
+        });
+
+        List<String> removed = previous.documents()
+            .entrySet()
+            .stream()
+            .filter(it -> !seen.contains(it.getKey()))
+            .flatMap(it -> it.getValue().segmentIds().stream())
+            .toList();
+        int deleted = (int) previous.documents().keySet().stream().filter(it -> !seen.contains(it)).count();
+
+        segmentSink.delete(replaced);
+        segmentSink.delete(removed);
+        segmentSink.flush();
+
+        SyncReport report = new SyncReport(added.get(), changed.get(), unchanged.get(), deleted, ingestionReport,
+            new IngestionManifest(next));
+        log.info("Incremental sync added={} changed={} unchanged={} deleted={} segmentsRemoved={}",
+            report.added(), report.changed(), report.unchanged(), report.deleted(), replaced.size() + removed.size());
+        return report;
+    }
+
+    /**
+     * Persists the manifest of a sync, to be called once its segments are durable.
+     */
+    public void commit(SyncReport report) {
+        report.manifest().save(manifestPath);
+    }
+
+    /**
+     * Stable identity of a document across runs: the repository path for GitHub documents,
+     * the absolute file path for file-system documents.
+     */
+    static String pathOf(Document document) {
+        Metadata metadata = document.metadata();
+        if (metadata.containsKey(GITHUB_FILE_PATH)) {
+            return metadata.getString(GITHUB_FILE_PATH);
+        }
+        if (metadata.containsKey(Document.ABSOLUTE_DIRECTORY_PATH) && metadata.containsKey(Document.FILE_NAME)) {
+            return Path.of(metadata.getString(Document.ABSOLUTE_DIRECTORY_PATH), metadata.getString(Document.FILE_NAME))
+                .toString();
+        }
+        if (metadata.containsKey(Document.URL)) {
+            return metadata.getString(Document.URL);
+        }
+        throw new IllegalArgumentException("Document has no path metadata: " + metadata);
+    }
+
+    private static List<String> segmentIds(String path, String hash, List<TextSegment> segments) {
+        String prefix = sha256(path).substring(0, 16) + "-" + hash.substring(0, 16) + "-";
+        return IntStream.range(0, segments.size())
+            .mapToObj(i -> prefix + i)
+            .toList();
+    }
+
+    static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param manifest what the index holds after the sync, persisted by {@link #commit(SyncReport)}
+     */
+    public record SyncReport(int added, int changed, int unchanged, int deleted, IngestionReport ingestion,
+                             IngestionManifest manifest) {
+    }
+}
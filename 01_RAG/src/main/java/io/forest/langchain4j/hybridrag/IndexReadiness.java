@@ -0,0 +1,94 @@
+package io.forest.langchain4j.hybridrag;
+
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.HealthStatus;
+import org.opensearch.client.opensearch._types.mapping.KnnVectorProperty;
+import org.opensearch.client.opensearch._types.mapping.Property;
+import org.opensearch.client.opensearch.cluster.HealthResponse;
+import org.opensearch.client.opensearch.indices.get_mapping.IndexMappingRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+
+/**
+ * Whether an existing index can serve queries as it is, so startup can sync it incrementally
+ * instead of rebuilding it.
+ *
+ * <p>An index is reusable when it exists, its shards are allocated (health at least yellow), it
+ * holds documents, its {@code vector} field has the expected dimension and data type, and the
+ * ingestion manifest it was loaded with (plus the quantizer, for byte vectors) is still on disk.
+ * Anything else, e.g. a mapping from before a {@code VECTOR_DATA_TYPE} switch or a lost manifest,
+ * means a rebuild.
+ *
+ * @param reusable  whether the index can be reused
+ * @param reason    why not, or {@code up to date}
+ * @param documents number of documents in the index, 0 if it does not exist
+ */
+public record IndexReadiness(boolean reusable, String reason, long documents) {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexReadiness.class);
+
+    /**
+     * @param client        the client to check with; waits up to 30 s for the index to turn yellow
+     * @param index         index or alias name
+     * @param dimensions    expected vector dimension
+     * @param quantized     whether byte vectors are expected instead of float vectors
+     * @param manifestPath  ingestion manifest of the index
+     * @param quantizerPath quantizer calibration of the index, only checked if {@code quantized}
+     */
+    public static IndexReadiness check(OpenSearchClient client, String index, int dimensions, boolean quantized,
+                                       Path manifestPath, Path quantizerPath) throws IOException {
+        IndexReadiness readiness = evaluate(client, index, dimensions, quantized, manifestPath, quantizerPath);
+        log.info("Index {} {}: {} documents, {}", index, readiness.reusable() ? "reusable" : "needs a rebuild",
+            readiness.documents(), readiness.reason());
+        return readiness;
+    }
+
+    private static IndexReadiness evaluate(OpenSearchClient client, String index, int dimensions, boolean quantized,
+                                           Path manifestPath, Path quantizerPath) throws IOException {
+        if (!client.indices().exists(e -> e.index(index)).value()) {
+            return new IndexReadiness(false, "does not exist", 0);
+        }
+
+        HealthResponse health = client.cluster().health(h -> h
+            .index(index)
+            .waitForStatus(HealthStatus.Yellow)
+            .timeout(t -> t.time("30s")));
+        if (health.timedOut() || health.status() == HealthStatus.Red) {
+            return new IndexReadiness(false, "health is " + health.status(), 0);
+        }
+
+        long documents = client.count(c -> c.index(index)).count();
+        if (documents == 0) {
+            return new IndexReadiness(false, "is empty", 0);
+        }
+
+        // an alias resolves to the one versioned index behind it
+        Collection<IndexMappingRecord> mappings = client.indices().getMapping(g -> g.index(index)).result().values();
+        Property vector = mappings.size() == 1
+            ? mappings.iterator().next().mappings().properties().get("vector")
+            : null;
+        if (vector == null || !vector.isKnnVector()) {
+            return new IndexReadiness(false, "has no single knn_vector field", documents);
+        }
+
+        KnnVectorProperty knnVector = vector.knnVector();
+        if (knnVector.dimension() != dimensions) {
+            return new IndexReadiness(false, "has dimension " + knnVector.dimension(), documents);
+        }
+        if (quantized != "byte".equals(knnVector.dataType())) {
+            return new IndexReadiness(false, "has data type " + knnVector.dataType(), documents);
+        }
+        if (!Files.exists(manifestPath)) {
+            return new IndexReadiness(false, "has no manifest " + manifestPath, documents);
+        }
+        if (quantized && !Files.exists(quantizerPath)) {
+            return new IndexReadiness(false, "has no quantizer " + quantizerPath, documents);
+        }
+        return new IndexReadiness(true, "up to date", documents);
+    }
+}
@@ -0,0 +1,65 @@
+package io.forest.langchain4j.hybridrag;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persisted record of what is in the index: document path → content hash → segment ids.
+ *
+ * <pre>
+ * {
+ *   "documents": {
+ *     "DDD/README.md": { "hash": "9f86d0...", "segmentIds": [ "2c26b4...-0", "2c26b4...-1" ] }
+ *   }
+ * }
+ * </pre>
+ */
+public record IngestionManifest(Map<String, Entry> documents) {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+        .enable(SerializationFeature.INDENT_OUTPUT);
+
+    public record Entry(String hash, List<String> segmentIds) {
+    }
+
+    public IngestionManifest {
+        documents = Map.copyOf(documents);
+    }
+
+    public static IngestionManifest empty() {
+        return new IngestionManifest(Map.of());
+    }
+
+    public static IngestionManifest load(Path path) {
+        if (!Files.exists(path)) {
+            return empty();
+        }
+        try {
+            return objectMapper.readValue(path.toFile(), IngestionManifest.class);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read ingestion manifest " + path, e);
+        }
+    }
+
+    /**
+     * Writes to a sibling temp file first, so a crash never leaves a truncated manifest behind.
+     */
+    public void save(Path path) {
+        try {
+            Path absolute = path.toAbsolutePath();
+            Files.createDirectories(absolute.getParent());
+            Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+            objectMapper.writeValue(temp.toFile(), this);
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write ingestion manifest " + path, e);
+        }
+    }
+}
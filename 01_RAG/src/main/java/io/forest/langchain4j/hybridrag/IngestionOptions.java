@@ -0,0 +1,32 @@
+package io.forest.langchain4j.hybridrag;
+
+/**
+ * Sizing of the {@link IngestionPipeline}.
+ *
+ * @param embeddingWorkers   number of threads running {@code embedAll} concurrently
+ * @param embeddingBatchSize segments per {@code embedAll} call
+ * @param bulkSize           segments per {@code _bulk} request
+ * @param queueCapacity      capacity of each queue between stages; bounds the memory held in flight
+ */
+public record IngestionOptions(
+    int embeddingWorkers,
+    int embeddingBatchSize,
+    int bulkSize,
+    int queueCapacity) {
+
+    public IngestionOptions {
+        if (embeddingWorkers < 1 || embeddingBatchSize < 1 || bulkSize < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException(
+                "Ingestion options must be positive: workers=%d batch=%d bulk=%d queue=%d"
+                    .formatted(embeddingWorkers, embeddingBatchSize, bulkSize, queueCapacity));
+        }
+    }
+
+    public static IngestionOptions defaults() {
+        return new IngestionOptions(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+            32,
+            256,
+            8);
+    }
+}
@@ -0,0 +1,297 @@
+package io.forest.langchain4j.hybridrag;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Replacement for {@code EmbeddingStoreIngestor.ingest(documents)} that runs the ingestion as four
+ * overlapping stages:
+ *
+ * <pre>
+ * load ──▶ split ──▶ embed (N workers, embedAll batches) ──▶ index (_bulk chunks)
+ * </pre>
+ *
+ * <p>Stages are connected by bounded queues, so a slow stage blocks its producers instead of
+ * letting documents or vectors pile up on the heap.
+ */
+public class IngestionPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestionPipeline.class);
+
+    private static final Document END_OF_DOCUMENTS = Document.from("end-of-documents");
+    private static final Batch END_OF_BATCHES = new Batch(List.of(), List.of(), List.of(), 0);
+
+    private final EmbeddingModel embeddingModel;
+    private final DocumentSplitter documentSplitter;
+    private final SegmentSink segmentSink;
+    private final IngestionOptions options;
+
+    public IngestionPipeline(EmbeddingModel embeddingModel,
+                             DocumentSplitter documentSplitter,
+                             SegmentSink segmentSink,
+                             IngestionOptions options) {
+        this.embeddingModel = embeddingModel;
+        this.documentSplitter = documentSplitter;
+        this.segmentSink = segmentSink;
+        this.options = options;
+    }
+
+    public IngestionReport ingest(Stream<Document> documents) {
+        return ingest(documents, SegmentIdGenerator.RANDOM);
+    }
+
+    public IngestionReport ingest(Stream<Document> documents, SegmentIdGenerator idGenerator) {
+        BlockingQueue<Document> loaded = new ArrayBlockingQueue<>(options.queueCapacity());
+        BlockingQueue<Batch> split = new ArrayBlockingQueue<>(options.queueCapacity());
+        BlockingQueue<Batch> embedded = new ArrayBlockingQueue<>(options.queueCapacity());
+
+        StageStats load = new StageStats("load");
+        StageStats splitting = new StageStats("split");
+        StageStats embedding = new StageStats("embed");
+        StageStats indexing = new StageStats("index");
+
+        int workers = options.embeddingWorkers();
+        long started = System.nanoTime();
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers + 3,
+            Thread.ofPlatform().name("ingestion-", 0).factory());
+        CompletionService<Void> stages = new ExecutorCompletionService<>(executor);
+
+        try {
+            stages.submit(() -> load(documents, loaded, load));
+            stages.submit(() -> split(loaded, split, idGenerator, splitting));
+            for (int i = 0; i < workers; i++) {
+                stages.submit(() -> embed(split, embedded, embedding));
+            }
+            stages.submit(() -> index(embedded, indexing));
+
+            for (int i = 0; i < workers + 3; i++) {
+                stages.take().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Ingestion was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Ingestion failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        IngestionReport report = new IngestionReport(
+            List.of(load.report(started), splitting.report(started), embedding.report(started), indexing.report(started)),
+            System.nanoTime() - started);
+
+        report.stages().forEach(it -> log.info(
+            "Ingestion stage={} documents={} segments={} elapsedMs={} busyMs={} documents/s={} segments/s={}",
+            it.stage(), it.documents(), it.segments(), it.elapsedNanos() / 1_000_000, it.busyNanos() / 1_000_000,
+            "%.1f".formatted(it.documentsPerSecond()), "%.1f".formatted(it.segmentsPerSecond())));
+
+        return report;
+    }
+
+    private Void load(Stream<Document> documents, BlockingQueue<Document> out, StageStats stats)
+        throws InterruptedException {
+        try (documents) {
+            Iterator<Document> iterator = documents.iterator();
+            while (true) {
+                long t0 = System.nanoTime();
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                Document document = iterator.next();
+                stats.record(1, 0, t0);
+                out.put(document);
+            }
+        }
+        out.put(END_OF_DOCUMENTS);
+        stats.finish();
+        return null;
+    }
+
+    private Void split(BlockingQueue<Document> in, BlockingQueue<Batch> out, SegmentIdGenerator idGenerator,
+                       StageStats stats) throws InterruptedException {
+        BatchBuilder batch = new BatchBuilder(options.embeddingBatchSize());
+
+        for (Document document = in.take(); document != END_OF_DOCUMENTS; document = in.take()) {
+            long t0 = System.nanoTime();
+            List<TextSegment> segments = documentSplitter.split(document);
+            List<String> ids = idGenerator.idsFor(document, segments);
+            stats.record(1, segments.size(), t0);
+
+            for (int i = 0; i < segments.size(); i++) {
+                if (batch.isFull()) {
+                    out.put(batch.build());
+                }
+                batch.add(ids.get(i), segments.get(i));
+            }
+            // a document counts as done in the batch that carries its last segment
+            batch.completeDocument();
+        }
+        if (!batch.isEmpty()) {
+            out.put(batch.build());
+        }
+        for (int i = 0; i < options.embeddingWorkers(); i++) {
+            out.put(END_OF_BATCHES);
+        }
+        stats.finish();
+        return null;
+    }
+
+    private Void embed(BlockingQueue<Batch> in, BlockingQueue<Batch> out, StageStats stats)
+        throws InterruptedException {
+        for (Batch batch = in.take(); batch != END_OF_BATCHES; batch = in.take()) {
+            long t0 = System.nanoTime();
+            List<Embedding> embeddings = batch.segments().isEmpty()
+                ? List.of()
+                : embeddingModel.embedAll(batch.segments()).content();
+            stats.record(batch.documents(), batch.segments().size(), t0);
+
+            out.put(new Batch(batch.ids(), batch.segments(), embeddings, batch.documents()));
+        }
+        out.put(END_OF_BATCHES);
+        stats.finish();
+        return null;
+    }
+
+    private Void index(BlockingQueue<Batch> in, StageStats stats) throws InterruptedException {
+        List<String> ids = new ArrayList<>(options.bulkSize());
+        List<TextSegment> segments = new ArrayList<>(options.bulkSize());
+        List<Embedding> embeddings = new ArrayList<>(options.bulkSize());
+        int documents = 0;
+        int pendingWorkers = options.embeddingWorkers();
+
+        while (pendingWorkers > 0) {
+            Batch batch = in.take();
+            if (batch == END_OF_BATCHES) {
+                pendingWorkers--;
+                continue;
+            }
+            ids.addAll(batch.ids());
+            segments.addAll(batch.segments());
+            embeddings.addAll(batch.embeddings());
+            documents += batch.documents();
+
+            if (ids.size() >= options.bulkSize()) {
+                write(ids, embeddings, segments, documents, stats);
+                documents = 0;
+            }
+        }
+        if (!ids.isEmpty() || documents > 0) {
+            write(ids, embeddings, segments, documents, stats);
+        }
+
+        long t0 = System.nanoTime();
+        segmentSink.flush();
+        stats.record(0, 0, t0);
+        stats.finish();
+        return null;
+    }
+
+    private void write(List<String> ids, List<Embedding> embeddings, List<TextSegment> segments,
+                       int documents, StageStats stats) {
+        long t0 = System.nanoTime();
+        if (!ids.isEmpty()) {
+            segmentSink.write(List.copyOf(ids), List.copyOf(embeddings), List.copyOf(segments));
+        }
+        stats.record(documents, ids.size(), t0);
+
+        ids.clear();
+        embeddings.clear();
+        segments.clear();
+    }
+
+    private record Batch(List<String> ids, List<TextSegment> segments, List<Embedding> embeddings, int documents) {
+    }
+
+    private static class BatchBuilder {
+
+        private final int capacity;
+        private List<String> ids;
+        private List<TextSegment> segments;
+        private int documents;
+
+        BatchBuilder(int capacity) {
+            this.capacity = capacity;
+            reset();
+        }
+
+        void add(String id, TextSegment segment) {
+            ids.add(id);
+            segments.add(segment);
+        }
+
+        void completeDocument() {
+            documents++;
+        }
+
+        boolean isFull() {
+            return segments.size() >= capacity;
+        }
+
+        boolean isEmpty() {
+            return segments.isEmpty() && documents == 0;
+        }
+
+        Batch build() {
+            Batch batch = new Batch(ids, segments, List.of(), documents);
+            reset();
+            return batch;
+        }
+
+        private void reset() {
+            ids = new ArrayList<>(capacity);
+            segments = new ArrayList<>(capacity);
+            documents = 0;
+        }
+    }
+
+    private static class StageStats {
+
+        private final String stage;
+        private final LongAdder documents = new LongAdder();
+        private final LongAdder segments = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+        private volatile long finishedAt;
+
+        StageStats(String stage) {
+            this.stage = stage;
+        }
+
+        void record(long documentCount, long segmentCount, long startedAt) {
+            busyNanos.add(System.nanoTime() - startedAt);
+            documents.add(documentCount);
+            segments.add(segmentCount);
+        }
+
+        void finish() {
+            finishedAt = System.nanoTime();
+        }
+
+        IngestionReport.StageReport report(long pipelineStartedAt) {
+            return new IngestionReport.StageReport(
+                stage,
+                documents.sum(),
+                segments.sum(),
+                finishedAt - pipelineStartedAt,
+                busyNanos.sum());
+        }
+    }
+}
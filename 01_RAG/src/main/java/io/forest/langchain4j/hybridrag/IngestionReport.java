@@ -0,0 +1,33 @@
+package io.forest.langchain4j.hybridrag;
+
+import java.util.List;
+
+/**
+ * Throughput of one {@link IngestionPipeline} run, per stage.
+ */
+public record IngestionReport(List<StageReport> stages, long elapsedNanos) {
+
+    /**
+     * @param elapsedNanos wall time from pipeline start until the stage drained its input
+     * @param busyNanos    time spent doing work, summed over the stage's threads (queue waits excluded)
+     */
+    public record StageReport(
+        String stage,
+        long documents,
+        long segments,
+        long elapsedNanos,
+        long busyNanos) {
+
+        public double documentsPerSecond() {
+            return perSecond(documents);
+        }
+
+        public double segmentsPerSecond() {
+            return perSecond(segments);
+        }
+
+        private double perSecond(long count) {
+            return elapsedNanos == 0 ? 0 : count * 1_000_000_000d / elapsedNanos;
+        }
+    }
+}
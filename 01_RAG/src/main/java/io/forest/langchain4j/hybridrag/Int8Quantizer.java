@@ -0,0 +1,118 @@
+package io.forest.langchain4j.hybridrag;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import dev.langchain4j.data.embedding.Embedding;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Calibrated scalar quantizer from float32 embeddings to the signed byte range accepted by a
+ * {@code knn_vector} field with {@code "data_type": "byte"}.
+ *
+ * <p>Every dimension is centred on its calibration mean and all dimensions share one scale, so L2
+ * distances between quantized vectors stay proportional to those between the original vectors,
+ * up to rounding and clipping. The scale maps the {@code clipQuantile} of the centred absolute
+ * values to 127; the few values beyond it saturate instead of stretching the range for everybody.
+ *
+ * <p>The same calibration must be used for indexing and querying, hence {@link #save(Path)}.
+ *
+ * @param offsets per-dimension calibration mean
+ * @param scale   multiplier applied after centring
+ */
+public record Int8Quantizer(float[] offsets, float scale) {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+        .enable(SerializationFeature.INDENT_OUTPUT);
+
+    public Int8Quantizer {
+        if (offsets.length == 0 || !(scale > 0)) {
+            throw new IllegalArgumentException("Invalid quantizer: dimension=%d scale=%f"
+                .formatted(offsets.length, scale));
+        }
+    }
+
+    /**
+     * @param sample       representative embeddings, e.g. a few thousand segments of the corpus
+     * @param clipQuantile fraction of centred values that must fit the byte range without clipping
+     */
+    public static Int8Quantizer calibrate(List<Embedding> sample, double clipQuantile) {
+        if (sample.isEmpty() || clipQuantile <= 0 || clipQuantile > 1) {
+            throw new IllegalArgumentException("Cannot calibrate quantizer from %d vectors at quantile %f"
+                .formatted(sample.size(), clipQuantile));
+        }
+        int dimension = sample.getFirst().dimension();
+
+        float[] offsets = new float[dimension];
+        for (Embedding embedding : sample) {
+            float[] vector = embedding.vector();
+            for (int i = 0; i < dimension; i++) {
+                offsets[i] += vector[i] / sample.size();
+            }
+        }
+
+        float[] deviations = new float[sample.size() * dimension];
+        int n = 0;
+        for (Embedding embedding : sample) {
+            float[] vector = embedding.vector();
+            for (int i = 0; i < dimension; i++) {
+                deviations[n++] = Math.abs(vector[i] - offsets[i]);
+            }
+        }
+        Arrays.sort(deviations);
+        float range = deviations[(int) Math.min(deviations.length - 1, Math.ceil(clipQuantile * deviations.length) - 1)];
+
+        return new Int8Quantizer(offsets, 127f / Math.max(range, Float.MIN_NORMAL));
+    }
+
+    public int dimension() {
+        return offsets.length;
+    }
+
+    public byte[] quantize(float[] vector) {
+        byte[] quantized = new byte[offsets.length];
+        for (int i = 0; i < offsets.length; i++) {
+            int value = Math.round((vector[i] - offsets[i]) * scale);
+            quantized[i] = (byte) Math.max(-128, Math.min(127, value));
+        }
+        return quantized;
+    }
+
+    /**
+     * Quantized vector widened back to floats, the form sent in {@code _bulk} documents and
+     * {@code knn} queries: OpenSearch accepts whole-number floats for byte fields.
+     */
+    public Embedding quantize(Embedding embedding) {
+        byte[] quantized = quantize(embedding.vector());
+        float[] widened = new float[quantized.length];
+        for (int i = 0; i < quantized.length; i++) {
+            widened[i] = quantized[i];
+        }
+        return Embedding.from(widened);
+    }
+
+    public static Int8Quantizer load(Path path) {
+        try {
+            return objectMapper.readValue(path.toFile(), Int8Quantizer.class);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read quantizer calibration " + path, e);
+        }
+    }
+
+    public void save(Path path) {
+        try {
+            Path absolute = path.toAbsolutePath();
+            Files.createDirectories(absolute.getParent());
+            Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+            objectMapper.writeValue(temp.toFile(), this);
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write quantizer calibration " + path, e);
+        }
+    }
+}
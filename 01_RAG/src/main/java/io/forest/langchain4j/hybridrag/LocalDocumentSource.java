@@ -0,0 +1,258 @@
+package io.forest.langchain4j.hybridrag;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.Metadata;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Offline replacement for {@code GitHubDocumentLoader}: reads the repository from a local clone or
+ * from an archive of it ({@code .tar}, {@code .tar.gz}, {@code .tgz} or {@code .zip}, as downloaded
+ * from GitHub) and emits the files as a lazy stream.
+ *
+ * <p>Only one file is held at a time, so the stream can feed the {@link IngestionPipeline} or
+ * {@link IncrementalIngestor} for corpora far larger than the heap. Files are read through NIO;
+ * files of {@value #MMAP_THRESHOLD} bytes or more are memory-mapped and decoded straight from the
+ * mapping. Files that are not valid UTF-8 are treated as binary and skipped.
+ *
+ * <p>Paths are relative to the repository root, with {@code /} separators, and are matched against
+ * the {@code includes} globs (all files if empty) and the {@code excludes} globs. The path is
+ * stored as {@value IncrementalIngestor#GITHUB_FILE_PATH}, like the GitHub loader does, so a
+ * manifest written from one source stays valid for the other. The stream must be closed.
+ */
+public record LocalDocumentSource(GitHubRepo repo, Path location, List<String> includes, List<String> excludes) {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalDocumentSource.class);
+
+    static final int MMAP_THRESHOLD = 64 * 1024;
+
+    /**
+     * Larger files are skipped; they are generated or vendored rather than documentation.
+     */
+    static final int MAX_FILE_BYTES = 8 * 1024 * 1024;
+
+    public Stream<Document> documents() {
+        PathMatcher included = matcher(includes);
+        PathMatcher excluded = matcher(excludes);
+
+        return Files.isDirectory(location)
+            ? walk(location)
+                .filter(file -> accept(relativePath(file), included, excluded))
+                .map(file -> readFile(file).map(text -> document(relativePath(file), text)))
+                .flatMap(Optional::stream)
+            : archiveEntries(included, excluded);
+    }
+
+    private boolean accept(String path, PathMatcher included, PathMatcher excluded) {
+        Path relative = Path.of(path);
+        return (includes.isEmpty() || included.matches(relative)) && !excluded.matches(relative);
+    }
+
+    /**
+     * Lazy depth-first walk in name order that does not descend into {@code .git}. Only the
+     * listings of the directories on the current path are held. A recursive
+     * {@code flatMap(Files.list(...).sorted())} would not do: iterating it buffers whole subtrees,
+     * and with them every file read downstream.
+     */
+    private static Stream<Path> walk(Path root) {
+        Deque<Iterator<Path>> directories = new ArrayDeque<>();
+        directories.push(list(root));
+
+        Iterator<Path> files = new Iterator<>() {
+
+            private Path next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && !directories.isEmpty()) {
+                    Iterator<Path> directory = directories.peek();
+                    if (!directory.hasNext()) {
+                        directories.pop();
+                        continue;
+                    }
+                    Path path = directory.next();
+                    if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                        if (!".git".equals(path.getFileName().toString())) {
+                            directories.push(list(path));
+                        }
+                    } else if (Files.isRegularFile(path)) {
+                        next = path;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Path next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Path file = next;
+                next = null;
+                return file;
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(files, Spliterator.ORDERED), false);
+    }
+
+    private static Iterator<Path> list(Path directory) {
+        try (Stream<Path> children = Files.list(directory)) {
+            return children.sorted().toList().iterator();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list " + directory, e);
+        }
+    }
+
+    private String relativePath(Path file) {
+        return location.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+    }
+
+    private Optional<String> readFile(Path file) {
+        try (FileChannel channel = FileChannel.open(file)) {
+            long size = channel.size();
+            if (size > MAX_FILE_BYTES) {
+                log.warn("Skip {}: {} bytes exceeds {}", file, size, MAX_FILE_BYTES);
+                return Optional.empty();
+            }
+            ByteBuffer bytes = size >= MMAP_THRESHOLD
+                ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size)
+                : ByteBuffer.wrap(Files.readAllBytes(file));
+            return decode(bytes, file.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + file, e);
+        }
+    }
+
+    private Stream<Document> archiveEntries(PathMatcher included, PathMatcher excluded) {
+        ArchiveInputStream<? extends ArchiveEntry> archive = openArchive();
+
+        Spliterator<Document> entries = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED) {
+
+            // GitHub archives put everything below a single "<repo>-<ref>/" directory
+            private String rootPrefix;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Document> action) {
+                try {
+                    for (ArchiveEntry entry = archive.getNextEntry(); entry != null; entry = archive.getNextEntry()) {
+                        String name = entry.getName();
+                        if (rootPrefix == null) {
+                            rootPrefix = entry.isDirectory() && name.indexOf('/') == name.length() - 1 ? name : "";
+                        }
+                        if (entry.isDirectory() || !archive.canReadEntryData(entry)) {
+                            continue;
+                        }
+                        String path = name.startsWith(rootPrefix) ? name.substring(rootPrefix.length()) : name;
+                        if (path.startsWith(".git/") || !accept(path, included, excluded)) {
+                            continue;
+                        }
+
+                        byte[] bytes = archive.readNBytes(MAX_FILE_BYTES + 1);
+                        if (bytes.length > MAX_FILE_BYTES) {
+                            log.warn("Skip {}: exceeds {} bytes", path, MAX_FILE_BYTES);
+                            continue;
+                        }
+                        Optional<String> text = decode(ByteBuffer.wrap(bytes), path);
+                        if (text.isPresent()) {
+                            action.accept(document(path, text.get()));
+                            return true;
+                        }
+                    }
+                    return false;
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read archive " + location, e);
+                }
+            }
+        };
+
+        return StreamSupport.stream(entries, false).onClose(() -> {
+            try {
+                archive.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to close archive " + location, e);
+            }
+        });
+    }
+
+    private ArchiveInputStream<? extends ArchiveEntry> openArchive() {
+        String fileName = location.getFileName().toString();
+        try {
+            InputStream in = new BufferedInputStream(Files.newInputStream(location), 64 * 1024);
+            if (fileName.endsWith(".zip")) {
+                return new ZipArchiveInputStream(in);
+            }
+            if (fileName.endsWith(".tar.gz") || fileName.endsWith(".tgz")) {
+                in = new GZIPInputStream(in, 64 * 1024);
+            } else if (!fileName.endsWith(".tar")) {
+                in.close();
+                throw new IllegalArgumentException("Not a directory or a .tar, .tar.gz, .tgz or .zip archive: " + location);
+            }
+            return new TarArchiveInputStream(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open archive " + location, e);
+        }
+    }
+
+    private static Optional<String> decode(ByteBuffer bytes, String name) {
+        try {
+            String text = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .decode(bytes)
+                .toString();
+            return text.isBlank() ? Optional.empty() : Optional.of(text);
+        } catch (CharacterCodingException e) {
+            log.debug("Skip {}: not UTF-8 text", name);
+            return Optional.empty();
+        }
+    }
+
+    private Document document(String path, String text) {
+        int slash = path.lastIndexOf('/');
+        Metadata metadata = new Metadata()
+            .put(IncrementalIngestor.GITHUB_FILE_PATH, path)
+            .put("github_file_name", path.substring(slash + 1))
+            .put("github_html_url", "https://github.com/%s/%s/blob/%s/%s"
+                .formatted(repo.owner(), repo.repo(), repo.branch(), path));
+        return Document.from(text, metadata);
+    }
+
+    private static PathMatcher matcher(List<String> globs) {
+        List<PathMatcher> matchers = globs.stream()
+            .map(glob -> FileSystems.getDefault().getPathMatcher("glob:" + glob))
+            .toList();
+        return path -> matchers.stream().anyMatch(it -> it.matches(path));
+    }
+}
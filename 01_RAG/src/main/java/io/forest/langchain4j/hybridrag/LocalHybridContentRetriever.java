@@ -0,0 +1,50 @@
+package io.forest.langchain4j.hybridrag;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import io.forest.langchain4j.metrics.Metrics;
+
+import java.util.List;
+
+/**
+ * Hybrid retrieval with no external service: the BM25 leg runs on the store's {@link Bm25Index},
+ * the kNN leg on its HNSW graph, and both are fused with {@link ReciprocalRankFusion} exactly like
+ * {@link FusionContentRetriever}. Both legs are in-process and fast, so they run sequentially and
+ * {@link FusionOptions#legTimeout()} is not used.
+ */
+public record LocalHybridContentRetriever(HnswEmbeddingStore embeddingStore, EmbeddingModel embeddingModel,
+                                          FusionOptions options) implements ContentRetriever {
+
+    private static final Metrics.Histogram embeddingLatency = RagMetrics.registry.stage("query_embedding");
+    private static final Metrics.Histogram searchLatency = RagMetrics.registry.stage("search");
+
+    @Override
+    public List<Content> retrieve(final Query query) {
+        long startedAt = System.nanoTime();
+        Embedding queryEmbedding = this.embeddingModel.embed(query.text()).content();
+        embeddingLatency.recordSince(startedAt);
+
+        long searchStartedAt = System.nanoTime();
+        List<SegmentHit> textHits = embeddingStore.textSearch(query.text(), options.textK());
+
+        List<SegmentHit> knnHits = embeddingStore.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(queryEmbedding)
+                .maxResults(options.knnK())
+                .build())
+            .matches()
+            .stream()
+            .map(it -> new SegmentHit(it.embeddingId(), it.embedded().text(), it.embedded().metadata().toMap(), it.score()))
+            .toList();
+        searchLatency.recordSince(searchStartedAt);
+
+        return new ReciprocalRankFusion(options.rankConstant())
+            .fuse(List.of(textHits, knnHits), List.of(options.textWeight(), options.knnWeight()), options.maxResults())
+            .stream()
+            .map(SegmentHit::toContent)
+            .toList();
+    }
+}
@@ -0,0 +1,94 @@
+package io.forest.langchain4j.hybridrag;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch.core.BulkResponse;
+import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes embedded segments with one {@code _bulk} request per chunk, using the same document
+ * layout as {@code OpenSearchEmbeddingStore} ({@code vector}, {@code text}, {@code metadata}).
+ */
+public record OpenSearchBulkIndexer(OpenSearchClient client, String indexName) implements SegmentSink {
+
+    @Override
+    public void write(List<String> ids, List<Embedding> embeddings, List<TextSegment> segments) {
+        List<BulkOperation> operations = new ArrayList<>(ids.size());
+
+        for (int i = 0; i < ids.size(); i++) {
+            String id = ids.get(i);
+            TextSegment segment = segments.get(i);
+
+            Map<String, Object> document = new HashMap<>();
+            document.put("vector", embeddings.get(i).vector());
+            document.put("text", segment.text());
+            document.put("metadata", segment.metadata().toMap());
+
+            operations.add(BulkOperation.of(o -> o.index(x -> x.id(id).document(document))));
+        }
+
+        try {
+            BulkResponse bulkResponse = client.bulk(b -> b
+                .index(this.indexName)
+                .operations(operations));
+
+            throwOnError(bulkResponse);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to bulk index segments into OpenSearch", e);
+        }
+    }
+
+    @Override
+    public void delete(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        List<BulkOperation> operations = ids.stream()
+            .map(id -> BulkOperation.of(o -> o.delete(d -> d.id(id))))
+            .toList();
+
+        try {
+            BulkResponse bulkResponse = client.bulk(b -> b
+                .index(this.indexName)
+                .operations(operations));
+
+            throwOnError(bulkResponse);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to bulk delete segments from OpenSearch", e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        try {
+            client.indices().refresh(r -> r.index(this.indexName));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to refresh OpenSearch index " + this.indexName, e);
+        }
+    }
+
+    private void throwOnError(BulkResponse bulkResponse) {
+        if (!bulkResponse.errors()) {
+            return;
+        }
+
+        BulkResponseItem failed = bulkResponse.items()
+            .stream()
+            .filter(it -> it.error() != null)
+            .findFirst()
+            .orElseThrow();
+
+        throw new IllegalStateException("Bulk request against %s failed for id %s: %s"
+            .formatted(this.indexName, failed.id(), failed.error().reason()));
+    }
+}
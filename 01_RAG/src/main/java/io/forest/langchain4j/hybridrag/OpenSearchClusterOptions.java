@@ -0,0 +1,61 @@
+package io.forest.langchain4j.hybridrag;
+
+import java.time.Duration;
+
+/**
+ * Settings of the {@link OpenSearchClusterTransport}.
+ *
+ * @param selection                how the node for a request is chosen
+ * @param maxConnectionsPerNode    pooled connections per node
+ * @param maxConnectionsTotal      pooled connections over all nodes
+ * @param connectTimeout           TCP connect timeout; a node that does not accept in time is failed over
+ * @param responseTimeout          time to wait for a response; bulk loads and cold kNN searches need
+ *                                 several seconds
+ * @param idleConnectionTimeToLive pooled connections older than this are closed instead of reused
+ * @param healthCheckInterval      how often every node is pinged; a node marked down is used again
+ *                                 after its first successful ping
+ */
+public record OpenSearchClusterOptions(
+    NodeSelection selection,
+    int maxConnectionsPerNode,
+    int maxConnectionsTotal,
+    Duration connectTimeout,
+    Duration responseTimeout,
+    Duration idleConnectionTimeToLive,
+    Duration healthCheckInterval) {
+
+    public enum NodeSelection {
+
+        /**
+         * Spreads requests evenly over the healthy nodes.
+         */
+        ROUND_ROBIN,
+
+        /**
+         * Sends each request to the healthy node with the lowest moving average response time.
+         */
+        LEAST_LATENCY
+    }
+
+    public OpenSearchClusterOptions {
+        if (maxConnectionsPerNode < 1 || maxConnectionsTotal < maxConnectionsPerNode) {
+            throw new IllegalArgumentException("Need 1 <= maxConnectionsPerNode <= maxConnectionsTotal");
+        }
+    }
+
+    public static OpenSearchClusterOptions defaults() {
+        return new OpenSearchClusterOptions(
+            NodeSelection.ROUND_ROBIN,
+            32,
+            128,
+            Duration.ofSeconds(1),
+            Duration.ofSeconds(30),
+            Duration.ofMinutes(1),
+            Duration.ofSeconds(5));
+    }
+
+    public OpenSearchClusterOptions withSelection(NodeSelection selection) {
+        return new OpenSearchClusterOptions(selection, maxConnectionsPerNode, maxConnectionsTotal, connectTimeout,
+            responseTimeout, idleConnectionTimeToLive, healthCheckInterval);
+    }
+}
@@ -0,0 +1,327 @@
+package io.forest.langchain4j.hybridrag;
+
+import io.forest.langchain4j.metrics.Metrics;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.opensearch.client.json.JsonpMapper;
+import org.opensearch.client.json.jackson.JacksonJsonpMapper;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.transport.Endpoint;
+import org.opensearch.client.transport.OpenSearchTransport;
+import org.opensearch.client.transport.TransportOptions;
+import org.opensearch.client.transport.httpclient5.ApacheHttpClient5Transport;
+import org.opensearch.client.transport.httpclient5.internal.Node;
+import org.opensearch.client.transport.httpclient5.internal.NodeSelector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link OpenSearchTransport} over several nodes of one cluster, shared by ingestion and
+ * retrieval through a single {@link OpenSearchClient}.
+ *
+ * <p>All nodes share one Apache async HTTP client, so there is one I/O reactor and one connection
+ * pool, bounded per node and in total by {@link OpenSearchClusterOptions}. Each node gets a
+ * single-node {@link ApacheHttpClient5Transport} on top of it, and this transport decides which of
+ * them serves a request, see {@link OpenSearchClusterOptions.NodeSelection}.
+ *
+ * <p>A request is retried on the next node only if it cannot have reached OpenSearch (connection
+ * refused, connect timeout) or is a {@code GET} or {@code HEAD}; a {@code _bulk} or {@code _aliases}
+ * call that the node may already have applied is not replayed. A failed connection or I/O error
+ * marks the node down, a response timeout does not, since a slow request such as a force-merge
+ * says nothing about the node. Error responses from OpenSearch are not retried. Nodes that are
+ * down are only tried after all healthy ones. A background thread pings every node
+ * at {@link OpenSearchClusterOptions#healthCheckInterval()}, marks nodes down or up again and feeds
+ * the ping times into the latency average, so a node that {@code LEAST_LATENCY} avoids still gets
+ * measured.
+ *
+ * <p>Sharing the HTTP client requires the public {@link ApacheHttpClient5Transport} constructor,
+ * which takes {@link Node} and {@link NodeSelector} from the client's {@code internal} package;
+ * its builder would create a client per node. Those classes may change in any opensearch-java
+ * release, so the version is pinned in the pom and {@code OpenSearchClusterTransportTest} covers
+ * this class.
+ */
+public class OpenSearchClusterTransport implements OpenSearchTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenSearchClusterTransport.class);
+
+    /**
+     * Weight of the newest sample in the per-node moving average of response times.
+     */
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final OpenSearchClusterOptions options;
+    private final CloseableHttpAsyncClient httpClient;
+    private final List<ClusterNode> nodes;
+    private final AtomicInteger nextNode = new AtomicInteger();
+    private final ScheduledExecutorService healthChecks;
+
+    private static final class ClusterNode {
+
+        private final OpenSearchConnection connection;
+        private final ApacheHttpClient5Transport transport;
+        private final Metrics.Histogram latency;
+        private final Metrics.Counter failures;
+
+        private volatile boolean healthy = true;
+        private volatile double averageNanos;
+
+        private ClusterNode(OpenSearchConnection connection, ApacheHttpClient5Transport transport) {
+            this.connection = connection;
+            this.transport = transport;
+            this.latency = RagMetrics.registry.histogram("rag_opensearch_request_seconds", "OpenSearch requests by node",
+                "node", connection.toUri());
+            this.failures = RagMetrics.registry.counter("rag_opensearch_node_failures_total",
+                "OpenSearch requests and pings that failed on a node", "node", connection.toUri());
+        }
+
+        /**
+         * Races between concurrent updates lose a sample at worst, which the average tolerates.
+         */
+        private void succeeded(long nanos) {
+            averageNanos = averageNanos == 0 ? nanos : averageNanos + LATENCY_SMOOTHING * (nanos - averageNanos);
+            if (!healthy) {
+                healthy = true;
+                log.info("OpenSearch node {} is up again", connection.toUri());
+            }
+        }
+
+        private void requestSucceeded(long startedAt) {
+            long nanos = System.nanoTime() - startedAt;
+            latency.record(nanos);
+            succeeded(nanos);
+        }
+
+        /**
+         * Counts the failure without marking the node down.
+         */
+        private void timedOut() {
+            failures.increment();
+        }
+
+        private void failed(Throwable failure) {
+            failures.increment();
+            if (healthy) {
+                healthy = false;
+                log.warn("OpenSearch node {} is down: {}", connection.toUri(), failure.toString());
+            }
+        }
+    }
+
+    public OpenSearchClusterTransport(List<OpenSearchConnection> connections, OpenSearchClusterOptions options) {
+        if (connections.isEmpty()) {
+            throw new IllegalArgumentException("At least one OpenSearch connection is required");
+        }
+        this.options = options;
+        this.httpClient = HttpAsyncClients.custom()
+            .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnPerRoute(options.maxConnectionsPerNode())
+                .setMaxConnTotal(options.maxConnectionsTotal())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                    .setConnectTimeout(Timeout.of(options.connectTimeout()))
+                    .setTimeToLive(TimeValue.of(options.idleConnectionTimeToLive()))
+                    .build())
+                .build())
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setResponseTimeout(Timeout.of(options.responseTimeout()))
+                .build())
+            .build();
+        this.httpClient.start();
+
+        JsonpMapper mapper = new JacksonJsonpMapper();
+        this.nodes = connections.stream()
+            .map(it -> new ClusterNode(it, new ApacheHttpClient5Transport(
+                httpClient,
+                new Header[0],
+                List.of(new Node(new HttpHost(it.scheme(), it.hostname(), it.port()))),
+                mapper,
+                null,
+                null,
+                new ApacheHttpClient5Transport.FailureListener(),
+                NodeSelector.ANY,
+                false,
+                false,
+                false)))
+            .toList();
+
+        this.healthChecks = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "opensearch-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = options.healthCheckInterval().toMillis();
+        this.healthChecks.scheduleWithFixedDelay(this::checkHealth, interval, interval, TimeUnit.MILLISECONDS);
+
+        log.info("OpenSearch nodes {}, {} selection", connections.stream().map(OpenSearchConnection::toUri).toList(),
+            options.selection());
+    }
+
+    @Override
+    public <RequestT, ResponseT, ErrorT> ResponseT performRequest(RequestT request,
+                                                                 Endpoint<RequestT, ResponseT, ErrorT> endpoint,
+                                                                 TransportOptions transportOptions) throws IOException {
+        IOException failure = null;
+        for (ClusterNode node : candidates()) {
+            long startedAt = System.nanoTime();
+            try {
+                ResponseT response = node.transport.performRequest(request, endpoint, transportOptions);
+                node.requestSucceeded(startedAt);
+                return response;
+            } catch (IOException e) {
+                failed(node, e);
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+                if (!retryable(endpoint.method(request), e)) {
+                    break;
+                }
+            }
+        }
+        throw failure;
+    }
+
+    @Override
+    public <RequestT, ResponseT, ErrorT> CompletableFuture<ResponseT> performRequestAsync(
+        RequestT request, Endpoint<RequestT, ResponseT, ErrorT> endpoint, TransportOptions transportOptions) {
+
+        return attempt(request, endpoint, transportOptions, candidates().iterator(), null);
+    }
+
+    private <RequestT, ResponseT, ErrorT> CompletableFuture<ResponseT> attempt(
+        RequestT request, Endpoint<RequestT, ResponseT, ErrorT> endpoint, TransportOptions transportOptions,
+        Iterator<ClusterNode> remaining, Throwable previousFailure) {
+
+        ClusterNode node = remaining.next();
+        long startedAt = System.nanoTime();
+        return node.transport.performRequestAsync(request, endpoint, transportOptions)
+            .handle((response, thrown) -> {
+                Throwable failure = thrown instanceof CompletionException ? thrown.getCause() : thrown;
+                if (failure == null) {
+                    node.requestSucceeded(startedAt);
+                    return CompletableFuture.completedFuture(response);
+                }
+                if (!(failure instanceof IOException)) {
+                    return CompletableFuture.<ResponseT>failedFuture(failure);
+                }
+                failed(node, failure);
+                if (previousFailure != null) {
+                    failure.addSuppressed(previousFailure);
+                }
+                return remaining.hasNext() && retryable(endpoint.method(request), failure)
+                    ? attempt(request, endpoint, transportOptions, remaining, failure)
+                    : CompletableFuture.<ResponseT>failedFuture(failure);
+            })
+            .thenCompose(it -> it);
+    }
+
+    private static void failed(ClusterNode node, Throwable failure) {
+        if (isResponseTimeout(failure)) {
+            node.timedOut();
+        } else {
+            node.failed(failure);
+        }
+    }
+
+    /**
+     * Whether a failed request may be sent to another node: either it never reached this one, or
+     * repeating it has no effect.
+     */
+    private static boolean retryable(String method, Throwable failure) {
+        return isConnectFailure(failure) || "GET".equals(method) || "HEAD".equals(method);
+    }
+
+    private static boolean isConnectFailure(Throwable failure) {
+        return failure instanceof ConnectException
+            || failure instanceof ConnectTimeoutException
+            || failure instanceof NoRouteToHostException
+            || failure instanceof UnknownHostException;
+    }
+
+    private static boolean isResponseTimeout(Throwable failure) {
+        return failure instanceof SocketTimeoutException && !(failure instanceof ConnectTimeoutException);
+    }
+
+    /**
+     * Healthy nodes in the order of the selection strategy, followed by the nodes that are down as
+     * a last resort.
+     */
+    private List<ClusterNode> candidates() {
+        List<ClusterNode> healthy = new ArrayList<>(nodes.size());
+        List<ClusterNode> down = new ArrayList<>();
+        for (ClusterNode node : nodes) {
+            (node.healthy ? healthy : down).add(node);
+        }
+
+        if (options.selection() == OpenSearchClusterOptions.NodeSelection.LEAST_LATENCY) {
+            healthy.sort(Comparator.comparingDouble(it -> it.averageNanos));
+        } else if (!healthy.isEmpty()) {
+            int first = Math.floorMod(nextNode.getAndIncrement(), healthy.size());
+            List<ClusterNode> rotated = new ArrayList<>(healthy.subList(first, healthy.size()));
+            rotated.addAll(healthy.subList(0, first));
+            healthy = rotated;
+        }
+
+        healthy.addAll(down);
+        return healthy;
+    }
+
+    private void checkHealth() {
+        for (ClusterNode node : nodes) {
+            long startedAt = System.nanoTime();
+            try {
+                if (new OpenSearchClient(node.transport).ping().value()) {
+                    node.succeeded(System.nanoTime() - startedAt);
+                } else {
+                    node.failed(new IOException("ping was not answered with 200"));
+                }
+            } catch (IOException | RuntimeException e) {
+                node.failed(e);
+            }
+        }
+    }
+
+    @Override
+    public JsonpMapper jsonpMapper() {
+        return nodes.getFirst().transport.jsonpMapper();
+    }
+
+    @Override
+    public TransportOptions options() {
+        return nodes.getFirst().transport.options();
+    }
+
+    /**
+     * Closes the shared HTTP client; the per-node transports only wrap it.
+     */
+    @Override
+    public void close() {
+        healthChecks.shutdownNow();
+        httpClient.close(CloseMode.GRACEFUL);
+    }
+}
@@ -1,8 +1,28 @@
 package io.forest.langchain4j.hybridrag;
 
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
 public record OpenSearchConnection(
     String scheme,
     String hostname,
     int port
 ) {
+
+    /**
+     * @param urls comma-separated node URLs, e.g. {@code http://os1:9200,http://os2:9200}
+     */
+    public static List<OpenSearchConnection> parse(String urls) {
+        return Arrays.stream(urls.split(","))
+            .map(String::trim)
+            .filter(it -> !it.isEmpty())
+            .map(URI::create)
+            .map(it -> new OpenSearchConnection(it.getScheme(), it.getHost(), it.getPort() < 0 ? 9200 : it.getPort()))
+            .toList();
+    }
+
+    public String toUri() {
+        return scheme + "://" + hostname + ":" + port;
+    }
 }
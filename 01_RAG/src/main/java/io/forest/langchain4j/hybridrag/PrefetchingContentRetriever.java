@@ -0,0 +1,62 @@
+package io.forest.langchain4j.hybridrag;
+
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * {@link ContentRetriever} decorator that lets retrieval start before the AI service asks for it.
+ *
+ * <p>{@link #prefetch(String)} runs the delegate on a virtual thread as soon as the question is
+ * known, overlapping it with whatever precedes the model call (answer cache lookup, input
+ * guardrails). When the AI service then retrieves for the same text, it joins the running search
+ * instead of starting a new one. Call {@link #discard(String)} when the question is answered
+ * without retrieval; it interrupts the prefetch thread, which aborts the running search.
+ */
+public class PrefetchingContentRetriever implements ContentRetriever {
+
+    private static final ExecutorService prefetches = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final ContentRetriever delegate;
+    private final Map<String, Future<List<Content>>> inFlight = new ConcurrentHashMap<>();
+
+    public PrefetchingContentRetriever(ContentRetriever delegate) {
+        this.delegate = delegate;
+    }
+
+    public void prefetch(String text) {
+        inFlight.computeIfAbsent(text, it -> prefetches.submit(() -> delegate.retrieve(Query.from(it))));
+    }
+
+    public void discard(String text) {
+        Future<List<Content>> prefetched = inFlight.remove(text);
+        if (prefetched != null) {
+            prefetched.cancel(true);
+        }
+    }
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        Future<List<Content>> prefetched = inFlight.remove(query.text());
+        if (prefetched == null) {
+            return delegate.retrieve(query);
+        }
+        try {
+            return prefetched.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            prefetched.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for prefetched retrieval", e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package io.forest.langchain4j.hybridrag;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
+import dev.langchain4j.data.document.parser.TextDocumentParser;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
+import dev.langchain4j.store.embedding.CosineSimilarity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Measures what {@code VECTOR_DATA_TYPE=byte} costs in accuracy and saves in memory on a real
+ * corpus, without needing OpenSearch.
+ *
+ * <pre>
+ * mvn -q org.codehaus.mojo:exec-maven-plugin:3.1.0:java -Dexec.mainClass=io.forest.langchain4j.hybridrag.QuantizationRecall -Dexec.args="path/to/docs 10"
+ * </pre>
+ *
+ * <p>Every 10th segment (at most 200) is held out as a query. For each query the exact top-k by
+ * float32 cosine similarity is the ground truth, and recall@k is the share of it that the exact
+ * top-k by L2 distance between {@link Int8Quantizer quantized} vectors recovers. Both searches are
+ * brute force, so the numbers isolate the quantization loss from the approximation of the HNSW
+ * graph. Memory follows the OpenSearch sizing formula for faiss HNSW,
+ * {@code 1.1 * (bytes per dimension * dimension + 8 * m) * vectors}.
+ */
+public class QuantizationRecall {
+
+    final static Logger log = LoggerFactory.getLogger(QuantizationRecall.class);
+
+    private static final double[] CLIP_QUANTILES = {1.0, 0.9999, 0.999, 0.99};
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: QuantizationRecall <documents directory> [k]");
+            System.exit(1);
+        }
+        Path directory = Path.of(args[0]);
+        int k = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        List<Document> documents = FileSystemDocumentLoader.loadDocumentsRecursively(directory, new TextDocumentParser());
+        List<TextSegment> segments = Application.documentSplitter().splitAll(documents);
+
+        log.info("Embed {} segments of {} documents.", segments.size(), documents.size());
+
+        EmbeddingModel embeddingModel = new AllMiniLmL6V2EmbeddingModel();
+        List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
+
+        List<Embedding> queries = new ArrayList<>();
+        List<Embedding> corpus = new ArrayList<>();
+        for (int i = 0; i < embeddings.size(); i++) {
+            (i % 10 == 0 && queries.size() < 200 ? queries : corpus).add(embeddings.get(i));
+        }
+        if (corpus.size() < k || queries.isEmpty()) {
+            throw new IllegalArgumentException("Need more than %d segments to measure recall@%d, found %d"
+                .formatted(k, k, embeddings.size()));
+        }
+
+        List<List<Integer>> groundTruth = queries.stream()
+            .map(query -> topK(corpus.size(), k, i -> -CosineSimilarity.between(query, corpus.get(i))))
+            .toList();
+
+        int dimension = embeddingModel.dimension();
+        int m = HnswOptions.defaults().m();
+        System.out.printf("%d vectors, %d queries, dimension %d, m %d%n", corpus.size(), queries.size(), dimension, m);
+        System.out.printf("%-10s %-10s %-10s %s%n", "data_type", "clip", "recall@" + k, "est. graph memory");
+        System.out.printf("%-10s %-10s %-10.4f %s%n", "float", "-", 1.0, megabytes(4, dimension, m, corpus.size()));
+
+        for (double clipQuantile : CLIP_QUANTILES) {
+            Int8Quantizer quantizer = Int8Quantizer.calibrate(corpus, clipQuantile);
+            List<byte[]> quantizedCorpus = corpus.stream().map(it -> quantizer.quantize(it.vector())).toList();
+
+            double recall = 0;
+            for (int q = 0; q < queries.size(); q++) {
+                byte[] query = quantizer.quantize(queries.get(q).vector());
+                List<Integer> found = topK(quantizedCorpus.size(), k, i -> squaredDistance(query, quantizedCorpus.get(i)));
+                recall += found.stream().filter(groundTruth.get(q)::contains).count() / (double) k;
+            }
+
+            System.out.printf("%-10s %-10s %-10.4f %s%n",
+                "byte", clipQuantile, recall / queries.size(), megabytes(1, dimension, m, corpus.size()));
+        }
+    }
+
+    private interface Distance {
+        double of(int index);
+    }
+
+    private static List<Integer> topK(int size, int k, Distance distance) {
+        double[] distances = new double[size];
+        for (int i = 0; i < size; i++) {
+            distances[i] = distance.of(i);
+        }
+        return IntStream.range(0, size)
+            .boxed()
+            .sorted(Comparator.comparingDouble(i -> distances[i]))
+            .limit(k)
+            .toList();
+    }
+
+    private static double squaredDistance(byte[] a, byte[] b) {
+        long sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            int difference = a[i] - b[i];
+            sum += difference * difference;
+        }
+        return sum;
+    }
+
+    private static String megabytes(int bytesPerDimension, int dimension, int m, int vectors) {
+        return "%.2f MB".formatted(1.1 * (bytesPerDimension * dimension + 8 * m) * vectors / (1024 * 1024));
+    }
+}
@@ -0,0 +1,41 @@
+package io.forest.langchain4j.hybridrag;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.List;
+
+/**
+ * {@link EmbeddingModel} decorator returning {@link Int8Quantizer quantized} embeddings, so the
+ * {@link IngestionPipeline} and the retrievers work unchanged against a byte {@code knn_vector}
+ * field. Wrap both the ingestion model and the query model with the same quantizer.
+ */
+public record QuantizedEmbeddingModel(EmbeddingModel delegate, Int8Quantizer quantizer) implements EmbeddingModel {
+
+    @Override
+    public Response<Embedding> embed(String text) {
+        return Response.from(quantizer.quantize(delegate.embed(text).content()));
+    }
+
+    @Override
+    public Response<Embedding> embed(TextSegment textSegment) {
+        return Response.from(quantizer.quantize(delegate.embed(textSegment).content()));
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        List<Embedding> embeddings = delegate.embedAll(textSegments)
+            .content()
+            .stream()
+            .map(quantizer::quantize)
+            .toList();
+        return Response.from(embeddings);
+    }
+
+    @Override
+    public int dimension() {
+        return quantizer.dimension();
+    }
+}
@@ -0,0 +1,70 @@
+package io.forest.langchain4j.hybridrag;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * {@link EmbeddingModel} decorator that caches single-text embeddings, so repeated questions skip
+ * the ONNX forward pass.
+ *
+ * <p>Queries are normalized (Unicode NFKC, lower case, collapsed whitespace) before lookup and the
+ * normalized text is what gets embedded, so every variant of a question maps to the same vector.
+ * Lower-casing is lossless for all-MiniLM-L6-v2, whose tokenizer is uncased. Vectors are kept as
+ * the primitive {@code float[]} backing the returned {@link Embedding}; callers must not modify it.
+ * {@link #embedAll(List)} is passed through uncached.
+ */
+public class QueryEmbeddingCache implements EmbeddingModel {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final EmbeddingModel delegate;
+    private final BoundedCache<String, float[]> cache;
+
+    public QueryEmbeddingCache(EmbeddingModel delegate, int maximumSize, Duration timeToLive) {
+        this.delegate = delegate;
+        this.cache = new BoundedCache<>(maximumSize, timeToLive);
+    }
+
+    @Override
+    public Response<Embedding> embed(String text) {
+        String key = normalize(text);
+        float[] vector = cache.computeIfAbsent(key, it -> delegate.embed(it).content().vector());
+        return Response.from(Embedding.from(vector));
+    }
+
+    @Override
+    public Response<Embedding> embed(TextSegment textSegment) {
+        return embed(textSegment.text());
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        return delegate.embedAll(textSegments);
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    public BoundedCache.Stats stats() {
+        return cache.stats();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    static String normalize(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC);
+        return WHITESPACE.matcher(normalized.strip()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,15 @@
+package io.forest.langchain4j.hybridrag;
+
+import io.forest.langchain4j.metrics.Metrics;
+
+/**
+ * The {@link Metrics} of the RAG pipeline: {@code rag_*} metrics, registered as MXBeans under
+ * {@code io.forest.langchain4j.hybridrag:type=Metrics}.
+ */
+public final class RagMetrics {
+
+    public static final Metrics registry = new Metrics("rag", "io.forest.langchain4j.hybridrag");
+
+    private RagMetrics() {
+    }
+}
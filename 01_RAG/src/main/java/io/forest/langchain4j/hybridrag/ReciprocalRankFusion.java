@@ -0,0 +1,54 @@
+package io.forest.langchain4j.hybridrag;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Weighted Reciprocal Rank Fusion: a hit at 1-based rank {@code r} in a ranking with weight
+ * {@code w} contributes {@code w / (rankConstant + r)}; contributions of the same id are summed.
+ *
+ * <p>Only ranks matter, so BM25 scores and cosine similarities can be combined without
+ * normalizing them first.
+ */
+public record ReciprocalRankFusion(int rankConstant) {
+
+    public ReciprocalRankFusion {
+        if (rankConstant < 0) {
+            throw new IllegalArgumentException("rankConstant must not be negative: " + rankConstant);
+        }
+    }
+
+    /**
+     * @param rankings one ranking per retrieval leg, best hit first
+     * @param weights  weight per ranking, same order as {@code rankings}
+     * @return the top {@code limit} hits, each carrying its fused score
+     */
+    public List<SegmentHit> fuse(List<List<SegmentHit>> rankings, List<Double> weights, int limit) {
+        if (rankings.size() != weights.size()) {
+            throw new IllegalArgumentException("Expected one weight per ranking");
+        }
+
+        Map<String, SegmentHit> hits = new LinkedHashMap<>();
+        Map<String, Double> scores = new LinkedHashMap<>();
+
+        for (int leg = 0; leg < rankings.size(); leg++) {
+            List<SegmentHit> ranking = rankings.get(leg);
+            double weight = weights.get(leg);
+
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                SegmentHit hit = ranking.get(rank);
+                hits.putIfAbsent(hit.id(), hit);
+                scores.merge(hit.id(), weight / (rankConstant + rank + 1), Double::sum);
+            }
+        }
+
+        return scores.entrySet()
+            .stream()
+            .sorted(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder()))
+            .limit(limit)
+            .map(it -> hits.get(it.getKey()).withScore(it.getValue()))
+            .toList();
+    }
+}
@@ -0,0 +1,35 @@
+package io.forest.langchain4j.hybridrag;
+
+import java.time.Duration;
+
+/**
+ * Settings of the {@link AliasReindexer}.
+ *
+ * @param replicas        replicas of the new index once it is loaded; it is built with none
+ * @param refreshInterval refresh interval of the new index once it is loaded; it is built with
+ *                        refresh disabled
+ * @param maxNumSegments  segments per shard after the force-merge, fewer means fewer HNSW graphs
+ *                        to search per query
+ * @param mergeTimeout    how long to wait for the force-merge, which can take many minutes on a
+ *                        large index, instead of the client's response timeout
+ * @param retainedIndices previous indices kept after the swap for a quick rollback; older ones
+ *                        are deleted
+ */
+public record ReindexOptions(
+    int replicas,
+    String refreshInterval,
+    long maxNumSegments,
+    Duration mergeTimeout,
+    int retainedIndices) {
+
+    public ReindexOptions {
+        if (replicas < 0 || maxNumSegments < 1 || retainedIndices < 0) {
+            throw new IllegalArgumentException("Invalid reindex options: replicas=%d max_num_segments=%d retained=%d"
+                .formatted(replicas, maxNumSegments, retainedIndices));
+        }
+    }
+
+    public static ReindexOptions defaults() {
+        return new ReindexOptions(0, "1s", 1, Duration.ofHours(1), 1);
+    }
+}
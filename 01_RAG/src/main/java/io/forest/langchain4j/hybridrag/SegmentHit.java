@@ -0,0 +1,67 @@
+package io.forest.langchain4j.hybridrag;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.ContentMetadata;
+import org.opensearch.client.opensearch.core.search.Hit;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * One ranked search result: the stored segment plus the score it was ranked by.
+ */
+public record SegmentHit(String id, String text, Map<String, Object> metadata, double score) {
+
+    /**
+     * The only {@code _source} fields the retrievers read; in particular the 384-float
+     * {@code vector} is never fetched.
+     */
+    static final List<String> SOURCE_FIELDS = List.of("text", "metadata");
+
+    /**
+     * Typed view of the filtered {@code _source}, decoded directly by the client's Jackson mapper
+     * instead of going through an {@code ObjectNode}.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Source(String text, Map<String, Object> metadata) {
+    }
+
+    static SegmentHit from(Hit<Source> hit) {
+        Source source = hit.source();
+        return new SegmentHit(
+            hit.id(),
+            source == null || source.text() == null ? "" : source.text(),
+            source == null || source.metadata() == null ? Map.of() : source.metadata(),
+            hit.score() == null ? 0 : hit.score());
+    }
+
+    public SegmentHit withScore(double score) {
+        return new SegmentHit(id, text, metadata, score);
+    }
+
+    public Content toContent() {
+        return Content.from(
+            TextSegment.from(text, Metadata.from(supportedMetadata())),
+            Map.of(ContentMetadata.SCORE, score, ContentMetadata.EMBEDDING_ID, id));
+    }
+
+    /**
+     * {@link Metadata} only accepts scalar values; anything else decoded from JSON is dropped.
+     */
+    private Map<String, Object> supportedMetadata() {
+        return metadata.entrySet()
+            .stream()
+            .filter(it -> it.getValue() instanceof String
+                || it.getValue() instanceof Integer
+                || it.getValue() instanceof Long
+                || it.getValue() instanceof Double
+                || it.getValue() instanceof Float
+                || it.getValue() instanceof UUID)
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+}
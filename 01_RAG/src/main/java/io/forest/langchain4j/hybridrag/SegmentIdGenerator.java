@@ -0,0 +1,22 @@
+package io.forest.langchain4j.hybridrag;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.segment.TextSegment;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Assigns the store ids of a document's segments. Called once per document by the split stage of
+ * the {@link IngestionPipeline}.
+ */
+@FunctionalInterface
+public interface SegmentIdGenerator {
+
+    SegmentIdGenerator RANDOM = (document, segments) -> Stream.generate(() -> UUID.randomUUID().toString())
+        .limit(segments.size())
+        .toList();
+
+    List<String> idsFor(Document document, List<TextSegment> segments);
+}
@@ -0,0 +1,61 @@
+package io.forest.langchain4j.hybridrag;
+
+import io.forest.langchain4j.metrics.Metrics;
+import jakarta.json.stream.JsonParser;
+import org.opensearch.client.json.JsonpDeserializer;
+import org.opensearch.client.json.JsonpMapper;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch.core.SearchRequest;
+import org.opensearch.client.opensearch.core.SearchResponse;
+import org.opensearch.client.opensearch.generic.Body;
+import org.opensearch.client.opensearch.generic.Requests;
+import org.opensearch.client.opensearch.generic.Response;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Runs a {@code _search} for segments in two timed steps. The typed client reads and deserializes
+ * the response in one call, so the JSON decoding would be hidden in the {@code search} stage.
+ * Here the raw body is fetched through the generic client, which is the {@code search} stage,
+ * and then decoded into {@link SegmentHit.Source}, which is the {@code decode} stage.
+ */
+final class SegmentSearch {
+
+    private static final Metrics.Histogram searchLatency = RagMetrics.registry.stage("search");
+    private static final Metrics.Histogram decodeLatency = RagMetrics.registry.stage("decode");
+
+    private static final JsonpDeserializer<SearchResponse<SegmentHit.Source>> deserializer =
+        SearchResponse.createSearchResponseDeserializer(JsonpDeserializer.of(SegmentHit.Source.class));
+
+    private SegmentSearch() {
+    }
+
+    static SearchResponse<SegmentHit.Source> search(OpenSearchClient client, SearchRequest request) throws IOException {
+        JsonpMapper mapper = client._transport().jsonpMapper();
+
+        long startedAt = System.nanoTime();
+        byte[] body;
+        try (Response response = client.generic().execute(Requests.builder()
+            .method("POST")
+            .endpoint("/" + String.join(",", request.index()) + "/_search")
+            .json(request, mapper)
+            .build())) {
+
+            body = response.getBody().map(Body::bodyAsBytes).orElse(new byte[0]);
+            if (response.getStatus() >= 300) {
+                throw new IOException("Search on %s failed with status %d: %s"
+                    .formatted(request.index(), response.getStatus(), new String(body, StandardCharsets.UTF_8)));
+            }
+        }
+        searchLatency.recordSince(startedAt);
+
+        long decodeStartedAt = System.nanoTime();
+        try (JsonParser parser = mapper.jsonProvider().createParser(new ByteArrayInputStream(body))) {
+            SearchResponse<SegmentHit.Source> response = deserializer.deserialize(parser, mapper);
+            decodeLatency.recordSince(decodeStartedAt);
+            return response;
+        }
+    }
+}
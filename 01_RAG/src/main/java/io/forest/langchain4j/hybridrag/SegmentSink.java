@@ -0,0 +1,63 @@
+package io.forest.langchain4j.hybridrag;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Final stage of the {@link IngestionPipeline}: receives embedded segments in bulk-sized chunks.
+ */
+public interface SegmentSink {
+
+    void write(List<String> ids, List<Embedding> embeddings, List<TextSegment> segments);
+
+    void delete(Collection<String> ids);
+
+    /**
+     * Called once after the last chunk was written, e.g. to make the writes visible to searches.
+     */
+    default void flush() {
+    }
+
+    /**
+     * Returns a sink that runs {@code listener} after every {@link #flush()}, i.e. whenever the
+     * index content may have changed.
+     */
+    default SegmentSink onFlush(Runnable listener) {
+        SegmentSink delegate = this;
+        return new SegmentSink() {
+            @Override
+            public void write(List<String> ids, List<Embedding> embeddings, List<TextSegment> segments) {
+                delegate.write(ids, embeddings, segments);
+            }
+
+            @Override
+            public void delete(Collection<String> ids) {
+                delegate.delete(ids);
+            }
+
+            @Override
+            public void flush() {
+                delegate.flush();
+                listener.run();
+            }
+        };
+    }
+
+    static SegmentSink of(EmbeddingStore<TextSegment> embeddingStore) {
+        return new SegmentSink() {
+            @Override
+            public void write(List<String> ids, List<Embedding> embeddings, List<TextSegment> segments) {
+                embeddingStore.addAll(ids, embeddings, segments);
+            }
+
+            @Override
+            public void delete(Collection<String> ids) {
+                embeddingStore.removeAll(ids);
+            }
+        };
+    }
+}
@@ -0,0 +1,64 @@
+package io.forest.langchain4j.hybridrag;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch.core.MgetResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Looks up the stored vectors of retrieved segments by id, so that {@link ContextAssembler} can
+ * compare them without embedding the segment texts again.
+ */
+@FunctionalInterface
+public interface SegmentVectors {
+
+    /**
+     * @return the vector of every id that is still stored; unknown ids are left out
+     */
+    Map<String, float[]> find(Collection<String> ids);
+
+    static SegmentVectors of(HnswEmbeddingStore embeddingStore) {
+        return embeddingStore::vectors;
+    }
+
+    /**
+     * The searches leave the {@code vector} field out of {@code _source}, see
+     * {@link SegmentHit#SOURCE_FIELDS}; this fetches it with one {@code _mget} for the few hits
+     * that are candidates for the prompt.
+     */
+    static SegmentVectors of(OpenSearchClient client, String indexName) {
+        @JsonIgnoreProperties(ignoreUnknown = true)
+        record VectorSource(float[] vector) {
+        }
+
+        return ids -> {
+            if (ids.isEmpty()) {
+                return Map.of();
+            }
+            try {
+                MgetResponse<VectorSource> response = client.mget(m -> m
+                        .index(indexName)
+                        .ids(List.copyOf(ids))
+                        .sourceIncludes("vector")
+                    , VectorSource.class);
+
+                Map<String, float[]> vectors = new HashMap<>();
+                response.docs().forEach(it -> {
+                    if (it.isResult() && it.result().found() && it.result().source() != null
+                        && it.result().source().vector() != null) {
+                        vectors.put(it.result().id(), it.result().source().vector());
+                    }
+                });
+                return vectors;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to fetch segment vectors from OpenSearch", e);
+            }
+        };
+    }
+}
@@ -0,0 +1,238 @@
+package io.forest.langchain4j.hybridrag;
+
+import dev.langchain4j.model.embedding.EmbeddingModel;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Answer cache keyed by meaning rather than by text: a question is answered from the cache when a
+ * previously answered question embeds within {@code similarityThreshold} cosine similarity of it,
+ * which skips both retrieval and the LLM round trip.
+ *
+ * <p>The index is a flat array of L2-normalized vectors scanned in full on every lookup. At a few
+ * thousand entries that is well under a millisecond, a rounding error next to the LLM call it
+ * saves, and unlike a graph index it has no cost for the constant churn of evictions. When full,
+ * the least recently used entry is evicted; entries also expire after {@code timeToLive}.
+ *
+ * <p>Answers are only valid for the index they were generated from, so {@link #invalidateAll()}
+ * must run whenever the index changes, e.g. through {@link SegmentSink#onFlush(Runnable)}. Every
+ * invalidation starts a new generation, and an answer is only stored if no invalidation happened
+ * since its question missed the cache; otherwise an LLM call still running on the old index would
+ * put its answer back for the whole time to live.
+ */
+public class SemanticAnswerCache {
+
+    private final EmbeddingModel embeddingModel;
+    private final double similarityThreshold;
+    private final long timeToLiveNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final int dimension;
+    private final float[] vectors;
+    private final String[] answers;
+    private final long[] lastUsed;
+    private final long[] writtenAt;
+    private int size;
+    private long clock;
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * @param embeddingModel      embeds questions, typically the {@link QueryEmbeddingCache} that
+     *                            retrieval uses, so a miss does not embed the question twice
+     * @param similarityThreshold minimum cosine similarity for two questions to share an answer
+     */
+    public SemanticAnswerCache(EmbeddingModel embeddingModel, double similarityThreshold, int maximumSize,
+                               Duration timeToLive) {
+        if (maximumSize < 1 || similarityThreshold <= 0 || similarityThreshold > 1) {
+            throw new IllegalArgumentException("Invalid semantic cache: maximumSize=%d similarityThreshold=%f"
+                .formatted(maximumSize, similarityThreshold));
+        }
+        this.embeddingModel = embeddingModel;
+        this.similarityThreshold = similarityThreshold;
+        this.timeToLiveNanos = timeToLive.toNanos();
+
+        this.dimension = embeddingModel.dimension();
+        this.vectors = new float[maximumSize * dimension];
+        this.answers = new String[maximumSize];
+        this.lastUsed = new long[maximumSize];
+        this.writtenAt = new long[maximumSize];
+    }
+
+    /**
+     * Returns the cached answer of a similar enough question, or asks {@code answerer} and caches
+     * its answer. The answerer runs outside the lock.
+     */
+    public String answer(String question, Function<String, String> answerer) {
+        float[] vector = embed(question);
+
+        long generation = generation();
+        String cached = lookup(vector);
+        if (cached != null) {
+            return cached;
+        }
+
+        String answer = answerer.apply(question);
+        store(vector, answer, generation);
+        return answer;
+    }
+
+    public Optional<String> get(String question) {
+        return Optional.ofNullable(lookup(embed(question)));
+    }
+
+    /**
+     * Caches an answer generated outside {@link #answer}, e.g. from a stream.
+     *
+     * @param generation the {@link #generation()} read before the answer was generated; the answer
+     *                   is dropped if the cache was invalidated since
+     */
+    public void put(String question, String answer, long generation) {
+        store(embed(question), answer, generation);
+    }
+
+    /**
+     * The current generation, to be read before generating an answer for {@link #put}.
+     */
+    public long generation() {
+        lock.lock();
+        try {
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            Arrays.fill(answers, 0, size, null);
+            size = 0;
+            generation++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public BoundedCache.Stats stats() {
+        lock.lock();
+        try {
+            return new BoundedCache.Stats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), size);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String lookup(float[] vector) {
+        long now = System.nanoTime();
+
+        lock.lock();
+        try {
+            int best = -1;
+            double bestSimilarity = similarityThreshold;
+
+            for (int slot = 0; slot < size; slot++) {
+                if (now - writtenAt[slot] > timeToLiveNanos) {
+                    remove(slot--);
+                    expirations.increment();
+                    continue;
+                }
+                double similarity = dot(vector, slot);
+                if (similarity >= bestSimilarity) {
+                    best = slot;
+                    bestSimilarity = similarity;
+                }
+            }
+
+            if (best < 0) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            lastUsed[best] = ++clock;
+            return answers[best];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void store(float[] vector, String answer, long generation) {
+        lock.lock();
+        try {
+            if (generation != this.generation) {
+                return;
+            }
+            int slot;
+            if (size < answers.length) {
+                slot = size++;
+            } else {
+                slot = 0;
+                for (int i = 1; i < size; i++) {
+                    if (lastUsed[i] < lastUsed[slot]) {
+                        slot = i;
+                    }
+                }
+                evictions.increment();
+            }
+
+            System.arraycopy(vector, 0, vectors, slot * dimension, dimension);
+            answers[slot] = answer;
+            lastUsed[slot] = ++clock;
+            writtenAt[slot] = System.nanoTime();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the last entry into {@code slot}, keeping the occupied slots contiguous.
+     */
+    private void remove(int slot) {
+        int last = --size;
+        if (slot != last) {
+            System.arraycopy(vectors, last * dimension, vectors, slot * dimension, dimension);
+            answers[slot] = answers[last];
+            lastUsed[slot] = lastUsed[last];
+            writtenAt[slot] = writtenAt[last];
+        }
+        answers[last] = null;
+    }
+
+    private double dot(float[] vector, int slot) {
+        int offset = slot * dimension;
+        double sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += vector[i] * vectors[offset + i];
+        }
+        return sum;
+    }
+
+    private float[] embed(String question) {
+        float[] vector = embeddingModel.embed(question).content().vector();
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected a %d-dimensional embedding but got %d"
+                .formatted(dimension, vector.length));
+        }
+
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        float scale = norm == 0 ? 0 : (float) (1 / Math.sqrt(norm));
+
+        float[] normalized = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+}
@@ -0,0 +1,15 @@
+package io.forest.langchain4j.hybridrag;
+
+import dev.langchain4j.service.MemoryId;
+import dev.langchain4j.service.UserMessage;
+import dev.langchain4j.service.memory.ChatMemoryAccess;
+
+/**
+ * Multi-user variant of the {@code Assistant}: every session id gets its own chat memory.
+ * {@link ChatMemoryAccess} lets {@link SessionMemoryStore} evictions also drop the AI service's
+ * per-session {@code ChatMemory} object.
+ */
+public interface SessionAssistant extends ChatMemoryAccess {
+
+    String chat(@MemoryId String sessionId, @UserMessage String userMessage);
+}
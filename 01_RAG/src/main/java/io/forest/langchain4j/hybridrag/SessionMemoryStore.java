@@ -0,0 +1,225 @@
+package io.forest.langchain4j.hybridrag;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Bounded {@link ChatMemoryStore} for many concurrent chat sessions.
+ *
+ * <p>At most {@code maximumSessions} histories are kept in memory, in least-recently-used order.
+ * A session idle for longer than {@code idleTimeout} has ended and is dropped. A session pushed out
+ * by newer ones is still alive, so with a {@code spillDirectory} it is written to disk and read
+ * back on its next message; without one it starts over. Spilled files older than the idle
+ * timeout are treated as ended too.
+ *
+ * <p>Disk I/O happens outside the lock. Listeners registered with {@link #onEvict(Consumer)} learn
+ * about every session leaving memory, e.g. to drop the per-session {@code ChatMemory} objects the
+ * AI service keeps.
+ */
+public class SessionMemoryStore implements ChatMemoryStore {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionMemoryStore.class);
+
+    private final int maximumSessions;
+    private final long idleTimeoutNanos;
+    private final Path spillDirectory;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Object, Session> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    private final List<Consumer<Object>> evictionListeners = new CopyOnWriteArrayList<>();
+
+    private final LongAdder spills = new LongAdder();
+    private final LongAdder restores = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * @param spillDirectory where sessions pushed out of memory are written, or {@code null} to
+     *                       discard them
+     */
+    public SessionMemoryStore(int maximumSessions, Duration idleTimeout, Path spillDirectory) {
+        if (maximumSessions < 1) {
+            throw new IllegalArgumentException("maximumSessions must be positive: " + maximumSessions);
+        }
+        this.maximumSessions = maximumSessions;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.spillDirectory = spillDirectory;
+
+        if (spillDirectory != null) {
+            try {
+                Files.createDirectories(spillDirectory);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to create session spill directory " + spillDirectory, e);
+            }
+        }
+    }
+
+    private record Session(List<ChatMessage> messages, long lastAccess) {
+    }
+
+    public record Stats(int sessions, long spills, long restores, long expirations) {
+    }
+
+    public void onEvict(Consumer<Object> listener) {
+        evictionListeners.add(listener);
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        long now = System.nanoTime();
+
+        lock.lock();
+        try {
+            Session session = sessions.get(memoryId);
+            if (session != null) {
+                if (now - session.lastAccess() <= idleTimeoutNanos) {
+                    sessions.put(memoryId, new Session(session.messages(), now));
+                    return session.messages();
+                }
+                sessions.remove(memoryId);
+                expirations.increment();
+                return List.of();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        List<ChatMessage> restored = restore(memoryId);
+        if (!restored.isEmpty()) {
+            updateMessages(memoryId, restored);
+        }
+        return restored;
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        long now = System.nanoTime();
+        Map<Object, Session> spilled = new LinkedHashMap<>();
+        List<Object> evicted = new ArrayList<>();
+
+        lock.lock();
+        try {
+            sessions.put(memoryId, new Session(List.copyOf(messages), now));
+
+            Iterator<Map.Entry<Object, Session>> eldest = sessions.entrySet().iterator();
+            while (eldest.hasNext()) {
+                Map.Entry<Object, Session> entry = eldest.next();
+                if (now - entry.getValue().lastAccess() > idleTimeoutNanos) {
+                    expirations.increment();
+                } else if (sessions.size() > maximumSessions) {
+                    spilled.put(entry.getKey(), entry.getValue());
+                } else {
+                    break;
+                }
+                eldest.remove();
+                evicted.add(entry.getKey());
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        spilled.forEach(this::spill);
+        evicted.forEach(id -> evictionListeners.forEach(listener -> listener.accept(id)));
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        lock.lock();
+        try {
+            sessions.remove(memoryId);
+        } finally {
+            lock.unlock();
+        }
+
+        if (spillDirectory != null) {
+            try {
+                Files.deleteIfExists(spillFile(memoryId));
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to delete spilled session " + memoryId, e);
+            }
+        }
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            return new Stats(sessions.size(), spills.sum(), restores.sum(), expirations.sum());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void spill(Object memoryId, Session session) {
+        if (spillDirectory == null) {
+            return;
+        }
+        try {
+            Path file = spillFile(memoryId);
+            Path temp = Files.createTempFile(spillDirectory, file.getFileName().toString(), ".tmp");
+            Files.writeString(temp, ChatMessageSerializer.messagesToJson(session.messages()), StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            spills.increment();
+        } catch (IOException e) {
+            log.warn("Failed to spill session {}, its history is lost", memoryId, e);
+        }
+    }
+
+    private List<ChatMessage> restore(Object memoryId) {
+        if (spillDirectory == null) {
+            return List.of();
+        }
+        Path file = spillFile(memoryId);
+        try {
+            if (!Files.exists(file)) {
+                return List.of();
+            }
+            long age = System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis();
+            String json = Files.readString(file, StandardCharsets.UTF_8);
+            Files.deleteIfExists(file);
+
+            if (Duration.ofMillis(age).toNanos() > idleTimeoutNanos) {
+                expirations.increment();
+                return List.of();
+            }
+            restores.increment();
+            return ChatMessageDeserializer.messagesFromJson(json);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to restore spilled session " + memoryId, e);
+        }
+    }
+
+    /**
+     * Session ids come from clients, so the file name is a hash of the id rather than the id.
+     */
+    private Path spillFile(Object memoryId) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest(memoryId.toString().getBytes(StandardCharsets.UTF_8));
+            return spillDirectory.resolve(HexFormat.of().formatHex(digest) + ".json");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package io.forest.langchain4j.hybridrag;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs and times the steps of application startup.
+ *
+ * <p>{@link #start(String, Callable)} hands a step to the executor given at construction: with a
+ * virtual-thread executor independent steps overlap, with {@code Runnable::run} they run one after
+ * another on the calling thread, so both bootstrap modes record the same phases. {@link #time(String,
+ * Callable)} times a step on the calling thread. {@link #ready()} logs all phases as a timeline
+ * measured from JVM start, and records each in {@code rag_startup_seconds{phase}}:
+ *
+ * <pre>
+ * Startup timeline, ready 6480 ms after JVM start
+ *    start      end  duration  phase
+ *      412      455        43  chat_client             |#                                       |
+ *      412     2918      2506  embedding_model         |#############                           |
+ * </pre>
+ */
+public class StartupTimeline {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupTimeline.class);
+
+    private static final int BAR_WIDTH = 40;
+
+    private record Phase(String name, long startNanos, long endNanos) {
+    }
+
+    private final Executor executor;
+    private final long jvmStartNanos;
+    private final List<Phase> phases = new ArrayList<>();
+
+    /**
+     * @param executor runs the steps passed to {@link #start(String, Callable)}
+     */
+    public StartupTimeline(Executor executor) {
+        this.executor = executor;
+        long uptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        this.jvmStartNanos = System.nanoTime() - uptimeMillis * 1_000_000;
+    }
+
+    /**
+     * Starts a step on the executor.
+     *
+     * @return the result of the step; {@link CompletableFuture#join()} rethrows its failure wrapped
+     * in a {@link CompletionException}
+     */
+    public <T> CompletableFuture<T> start(String phase, Callable<T> step) {
+        return CompletableFuture.supplyAsync(() -> time(phase, step), executor);
+    }
+
+    /**
+     * Runs a step on the calling thread.
+     */
+    public <T> T time(String phase, Callable<T> step) {
+        long startedAt = System.nanoTime();
+        try {
+            return step.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        } finally {
+            long endedAt = System.nanoTime();
+            synchronized (phases) {
+                phases.add(new Phase(phase, startedAt, endedAt));
+            }
+            RagMetrics.registry.histogram("rag_startup_seconds", "Duration of application startup phases", "phase", phase)
+                .record(endedAt - startedAt);
+        }
+    }
+
+    /**
+     * Logs the timeline up to now as the moment the application became ready.
+     */
+    public void ready() {
+        long readyAt = System.nanoTime();
+        RagMetrics.registry.histogram("rag_startup_seconds", "Duration of application startup phases", "phase", "ready")
+            .record(readyAt - jvmStartNanos);
+
+        List<Phase> sorted;
+        synchronized (phases) {
+            sorted = new ArrayList<>(phases);
+        }
+        sorted.sort(Comparator.comparingLong(Phase::startNanos));
+
+        double scale = (double) BAR_WIDTH / Math.max(1, readyAt - jvmStartNanos);
+        StringBuilder timeline = new StringBuilder()
+            .append("Startup timeline, ready ").append(millis(readyAt)).append(" ms after JVM start\n")
+            .append("   start      end  duration  phase\n");
+        for (Phase phase : sorted) {
+            int from = (int) ((phase.startNanos() - jvmStartNanos) * scale);
+            int to = Math.max(from + 1, (int) Math.ceil((phase.endNanos() - jvmStartNanos) * scale));
+            timeline.append("%8d %8d %9d  %-22s |%s%s%s|%n".formatted(
+                millis(phase.startNanos()), millis(phase.endNanos()),
+                (phase.endNanos() - phase.startNanos()) / 1_000_000, phase.name(),
+                " ".repeat(from), "#".repeat(Math.min(to, BAR_WIDTH) - from), " ".repeat(Math.max(0, BAR_WIDTH - to))));
+        }
+        log.info(timeline.toString().stripTrailing());
+    }
+
+    private long millis(long nanos) {
+        return (nanos - jvmStartNanos) / 1_000_000;
+    }
+}
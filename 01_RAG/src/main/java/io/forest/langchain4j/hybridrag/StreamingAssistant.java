@@ -0,0 +1,13 @@
+package io.forest.langchain4j.hybridrag;
+
+import dev.langchain4j.service.TokenStream;
+import io.forest.langchain4j.metrics.TimedTokenStream;
+
+/**
+ * Streaming counterpart of the {@code Assistant}: the answer arrives token by token, so the user
+ * sees the start of it long before phi-3 has finished. Drive it with {@link TimedTokenStream}.
+ */
+public interface StreamingAssistant {
+
+    TokenStream chat(String userMessage);
+}
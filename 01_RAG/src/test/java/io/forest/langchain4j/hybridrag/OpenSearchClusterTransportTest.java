@@ -0,0 +1,236 @@
+package io.forest.langchain4j.hybridrag;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.opensearch.client.opensearch.OpenSearchClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Node selection, failover and revival of the {@link OpenSearchClusterTransport}, run against
+ * in-process HTTP stubs instead of an OpenSearch cluster.
+ *
+ * <p>Each stub answers {@code HEAD /probe}, an index-exists check, {@code POST /probe/_refresh}, a
+ * write, and {@code HEAD /}, the health check ping. It counts only the requests for
+ * {@code /probe}, so the pings do not disturb the counts. A node goes down
+ * by stopping its stub, which makes connections to it fail, and comes back by binding a new stub
+ * to the same port.
+ */
+class OpenSearchClusterTransportTest {
+
+    private static final Duration NO_HEALTH_CHECKS = Duration.ofHours(1);
+
+    private final List<StubNode> stubs = new ArrayList<>();
+    private OpenSearchClusterTransport transport;
+
+    private static final class StubNode {
+
+        private final int port;
+        private final Duration delay;
+        private final AtomicInteger served = new AtomicInteger();
+        private HttpServer server;
+
+        private StubNode(Duration delay) throws IOException {
+            this.delay = delay;
+            this.server = bind(0);
+            this.port = server.getAddress().getPort();
+        }
+
+        private HttpServer bind(int port) throws IOException {
+            HttpServer bound = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            bound.createContext("/", this::handle);
+            bound.start();
+            return bound;
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            if (exchange.getRequestURI().getPath().startsWith("/probe")) {
+                served.incrementAndGet();
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+            } else {
+                byte[] body = "{\"_shards\":{\"total\":1,\"successful\":1,\"failed\":0}}"
+                    .getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream response = exchange.getResponseBody()) {
+                    response.write(body);
+                }
+            }
+            exchange.close();
+        }
+
+        private void stop() {
+            server.stop(0);
+        }
+
+        private void restart() throws IOException {
+            server = bind(port);
+        }
+
+        private OpenSearchConnection connection() {
+            return new OpenSearchConnection("http", InetAddress.getLoopbackAddress().getHostAddress(), port);
+        }
+
+        private long failures() {
+            return RagMetrics.registry.counter("rag_opensearch_node_failures_total",
+                "OpenSearch requests and pings that failed on a node", "node", connection().toUri()).getCount();
+        }
+    }
+
+    @AfterEach
+    void stopStubs() {
+        if (transport != null) {
+            transport.close();
+        }
+        stubs.forEach(StubNode::stop);
+    }
+
+    @Test
+    void roundRobinSpreadsRequestsEvenly() throws IOException {
+        OpenSearchClient client = client(OpenSearchClusterOptions.NodeSelection.ROUND_ROBIN, NO_HEALTH_CHECKS,
+            Duration.ZERO, Duration.ZERO, Duration.ZERO);
+
+        for (int i = 0; i < 30; i++) {
+            assertTrue(probe(client));
+        }
+
+        for (StubNode stub : stubs) {
+            assertEquals(10, stub.served.get(), "requests served by " + stub.connection().toUri());
+        }
+    }
+
+    @Test
+    void failsOverToTheNextNodeWhenOneIsDown() throws IOException {
+        OpenSearchClient client = client(OpenSearchClusterOptions.NodeSelection.ROUND_ROBIN, NO_HEALTH_CHECKS,
+            Duration.ZERO, Duration.ZERO, Duration.ZERO);
+        StubNode down = stubs.get(1);
+        down.stop();
+
+        for (int i = 0; i < 30; i++) {
+            assertTrue(probe(client), "request " + i + " failed over");
+        }
+
+        assertEquals(30, stubs.get(0).served.get() + stubs.get(2).served.get());
+        // marked down by the first failure, then only tried after the healthy nodes
+        assertEquals(1, down.failures());
+    }
+
+    @Test
+    void failsOverAWriteOnlyIfTheConnectionWasRefused() throws IOException {
+        OpenSearchClient client = client(OpenSearchClusterOptions.NodeSelection.ROUND_ROBIN, NO_HEALTH_CHECKS,
+            Duration.ZERO, Duration.ZERO);
+        stubs.get(0).stop();
+
+        refresh(client);
+
+        assertEquals(1, stubs.get(1).served.get());
+    }
+
+    @Test
+    void doesNotReplayAWriteOrMarkTheNodeDownAfterAResponseTimeout() throws IOException {
+        OpenSearchClient client = clientTimingOutAfter(Duration.ofMillis(300),
+            OpenSearchClusterOptions.NodeSelection.ROUND_ROBIN, NO_HEALTH_CHECKS, Duration.ofSeconds(3), Duration.ZERO);
+        StubNode slow = stubs.get(0);
+        StubNode fast = stubs.get(1);
+
+        assertThrows(SocketTimeoutException.class, () -> refresh(client));
+        assertEquals(1, slow.served.get());
+        assertEquals(0, fast.served.get(), "the write was not replayed");
+
+        // reads are retried after a timeout, and the slow node stays in the rotation
+        assertTrue(probe(client));
+        assertTrue(probe(client));
+        assertEquals(2, fast.served.get());
+        assertEquals(2, slow.failures(), "the second read tried the slow node first");
+    }
+
+    @Test
+    void revivesANodeOnceItsHealthCheckSucceeds() throws IOException, InterruptedException {
+        OpenSearchClient client = client(OpenSearchClusterOptions.NodeSelection.ROUND_ROBIN, Duration.ofMillis(100),
+            Duration.ZERO, Duration.ZERO);
+        StubNode revived = stubs.get(1);
+        revived.stop();
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(probe(client));
+        }
+        assertTrue(revived.failures() >= 1, "the stopped node was marked down");
+        assertEquals(10, stubs.get(0).served.get());
+
+        revived.restart();
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (revived.served.get() == 0 && System.nanoTime() < deadline) {
+            assertTrue(probe(client));
+            Thread.sleep(20);
+        }
+
+        assertTrue(revived.served.get() > 0, "the restarted node serves requests again");
+    }
+
+    @Test
+    void leastLatencyPrefersTheFastestNode() throws IOException {
+        OpenSearchClient client = client(OpenSearchClusterOptions.NodeSelection.LEAST_LATENCY, NO_HEALTH_CHECKS,
+            Duration.ofMillis(50), Duration.ZERO);
+        StubNode slow = stubs.get(0);
+        StubNode fast = stubs.get(1);
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(probe(client));
+        }
+
+        // the slow node is only tried before any latency was measured
+        assertTrue(slow.served.get() <= 1, "slow node served " + slow.served.get());
+        assertEquals(20, slow.served.get() + fast.served.get());
+    }
+
+    /**
+     * Starts one stub per delay and a transport over all of them.
+     */
+    private OpenSearchClient client(OpenSearchClusterOptions.NodeSelection selection, Duration healthCheckInterval,
+                                    Duration... delays) throws IOException {
+        return clientTimingOutAfter(Duration.ofSeconds(5), selection, healthCheckInterval, delays);
+    }
+
+    private OpenSearchClient clientTimingOutAfter(Duration responseTimeout,
+                                                  OpenSearchClusterOptions.NodeSelection selection,
+                                                  Duration healthCheckInterval, Duration... delays) throws IOException {
+        for (Duration delay : delays) {
+            stubs.add(new StubNode(delay));
+        }
+        transport = new OpenSearchClusterTransport(
+            stubs.stream().map(StubNode::connection).toList(),
+            new OpenSearchClusterOptions(selection, 4, 16, Duration.ofSeconds(1), responseTimeout,
+                Duration.ofMinutes(1), healthCheckInterval));
+        return new OpenSearchClient(transport);
+    }
+
+    private static void refresh(OpenSearchClient client) throws IOException {
+        client.indices().refresh(r -> r.index("probe"));
+    }
+
+    private static boolean probe(OpenSearchClient client) throws IOException {
+        return client.indices().exists(e -> e.index("probe")).value();
+    }
+}
@@ -0,0 +1,264 @@
+package io.forest.langchain4j.guardrails;
+
+import io.forest.langchain4j.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * An {@link InjectionDetector} decorator that reuses verdicts for messages
+ * it has already seen, so retries and templated traffic do not pay for
+ * another detector call.
+ *
+ * <p>Messages are normalized (Unicode NFKC, lower case, collapsed
+ * whitespace) and hashed with SHA-256. The hash is the cache key, so the
+ * cache never holds the messages themselves. Safe and unsafe verdicts live
+ * for {@link VerdictCacheOptions#safeTimeToLive()} and
+ * {@link VerdictCacheOptions#unsafeTimeToLive()} respectively. At most
+ * {@link VerdictCacheOptions#maximumSize()} verdicts are kept, in LRU order.
+ *
+ * <p>Concurrent calls for the same key are coalesced: the first one asks
+ * the detector and the others wait for its verdict, so N identical messages
+ * arriving together cost one detector call. A failed call is not cached;
+ * its exception is rethrown to every waiting caller.
+ *
+ * <p>A flush starts a new generation. Calls already in flight still answer
+ * their callers, but their verdicts are not stored, and messages arriving
+ * after the flush no longer join them.
+ *
+ * <p>Outcomes are counted in {@code guardrail_verdict_cache_requests_total}
+ * ({@code hit}, {@code miss}, {@code coalesced}) and evictions in
+ * {@code guardrail_verdict_cache_evictions_total}. The cache is registered
+ * as an MXBean under
+ * {@code io.forest.langchain4j.guardrails:type=VerdictCache}, whose
+ * {@code flush} operation drops all verdicts, e.g. after the detector model
+ * was changed.
+ */
+public class CachingInjectionDetector implements InjectionDetector {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingInjectionDetector.class);
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final Metrics.Counter hits = requests("hit");
+    private static final Metrics.Counter misses = requests("miss");
+    private static final Metrics.Counter coalesced = requests("coalesced");
+    private static final Metrics.Counter evictions =
+        GuardrailMetrics.registry.counter("guardrail_verdict_cache_evictions_total", "Verdicts evicted from the full cache");
+
+    private final InjectionDetector delegate;
+    private final VerdictCacheOptions options;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> verdicts;
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private long generation;
+
+    private record Entry(String verdict, long expiresAt) {
+    }
+
+    /**
+     * Management view of the cache.
+     */
+    public interface VerdictCacheMXBean {
+
+        int getSize();
+
+        /**
+         * Drops all cached verdicts.
+         */
+        void flush();
+    }
+
+    /**
+     * @param delegate the detector whose verdicts are cached
+     * @param options  size and time-to-live settings
+     */
+    public CachingInjectionDetector(InjectionDetector delegate, VerdictCacheOptions options) {
+        this.delegate = delegate;
+        this.options = options;
+        this.verdicts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > options.maximumSize()) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        registerMBean();
+    }
+
+    /**
+     * Return the cached verdict for the text, or ask the delegate once for
+     * all concurrent callers with the same text.
+     *
+     * @param text the user message to analyze
+     * @return the verdict of the delegate
+     */
+    @Override
+    public String isInjection(String text) {
+        String key = key(text);
+
+        String cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+
+        try {
+            long generation = generation();
+            // another call may have stored the verdict between the lookup and taking over the key
+            cached = lookup(key);
+            if (cached == null) {
+                misses.increment();
+                cached = delegate.isInjection(text);
+                store(key, cached, generation);
+            } else {
+                hits.increment();
+            }
+            call.complete(cached);
+            return cached;
+        } catch (RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    /**
+     * Drops all cached verdicts. Calls already in flight still complete but
+     * do not store theirs.
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            verdicts.clear();
+            inFlight.clear();
+            generation++;
+        } finally {
+            lock.unlock();
+        }
+        log.info("Flushed injection verdict cache");
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return verdicts.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long generation() {
+        lock.lock();
+        try {
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String lookup(String key) {
+        lock.lock();
+        try {
+            Entry entry = verdicts.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (System.nanoTime() - entry.expiresAt() >= 0) {
+                verdicts.remove(key);
+                return null;
+            }
+            return entry.verdict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void store(String key, String verdict, long generation) {
+        boolean unsafe = verdict.trim().toLowerCase(Locale.ROOT).startsWith("unsafe");
+        long timeToLive = (unsafe ? options.unsafeTimeToLive() : options.safeTimeToLive()).toNanos();
+
+        lock.lock();
+        try {
+            if (generation != this.generation) {
+                return;
+            }
+            verdicts.put(key, new Entry(verdict, System.nanoTime() + timeToLive));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String await(CompletableFuture<String> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    static String key(String text) {
+        String normalized = WHITESPACE.matcher(Normalizer.normalize(text, Normalizer.Form.NFKC).strip())
+            .replaceAll(" ")
+            .toLowerCase(Locale.ROOT);
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(normalized.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private void registerMBean() {
+        VerdictCacheMXBean mbean = new VerdictCacheMXBean() {
+            @Override
+            public int getSize() {
+                return size();
+            }
+
+            @Override
+            public void flush() {
+                invalidateAll();
+            }
+        };
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(mbean, new ObjectName("io.forest.langchain4j.guardrails:type=VerdictCache"));
+        } catch (JMException e) {
+            log.warn("Failed to register verdict cache MBean", e);
+        }
+    }
+
+    private static Metrics.Counter requests(String result) {
+        return GuardrailMetrics.registry.counter("guardrail_verdict_cache_requests_total", "Injection verdict cache lookups",
+            "result", result);
+    }
+}
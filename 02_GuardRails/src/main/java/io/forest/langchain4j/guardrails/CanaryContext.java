@@ -1,50 +1,124 @@
 package io.forest.langchain4j.guardrails;
 
-import java.util.UUID;
+import dev.langchain4j.invocation.InvocationContext;
+import dev.langchain4j.invocation.InvocationParameters;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
- * Holds a thread-local canary token used to detect whether an LLM leaked
- * a secret token that was injected into the prompt at request time.
+ * The canary tokens of one AI service request, used to detect whether an
+ * LLM leaked a secret token that was injected into the prompt.
  *
  * <p>Typical usage:
  * <ol>
- *   <li>Call {@link #generate()} before sending a request to produce and store
- *       a unique CANARY token for the current thread.</li>
- *   <li>After the LLM responds, call {@link #get()} to retrieve the token
- *       and check whether it appears in the model output.</li>
- *   <li>Always call {@link #clear()} to remove the token from thread-local
- *       storage when finished.</li>
+ *   <li>{@link CanaryTokenInputGuardrail} calls {@link #generate()} on the
+ *       request's context and puts the token into the prompt.</li>
+ *   <li>After the LLM responds, {@link CanaryTokenOutputGuardrail} or
+ *       {@link CanaryTokenStream} checks the response for every token in
+ *       {@link #tokens()}.</li>
  * </ol>
+ *
+ * <p>The context travels with the request instead of with a thread: it is
+ * stored in the {@link InvocationParameters} of the AI service invocation,
+ * which LangChain4J hands to every guardrail of that invocation, whether it
+ * runs on the caller's thread, a virtual thread or a streaming callback.
+ * Nothing is kept in thread-locals or global maps, so there is nothing to
+ * clear and no way for a token to reach another request. A caller that
+ * needs the tokens itself, such as a streaming caller wrapping the stream in
+ * {@link CanaryTokenStream}, creates the context and passes it in with
+ * {@link #parameters()}.
+ *
+ * <p>A request may carry several canaries, e.g. when more than one
+ * guardrail plants a token; all of them are checked.
  */
-public class CanaryContext {
+public final class CanaryContext {
+
+    private static final String PARAMETER = CanaryContext.class.getName();
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final List<String> tokens = new CopyOnWriteArrayList<>();
+
+    /**
+     * The context of an AI service invocation, created on first use.
+     *
+     * @param invocationContext the invocation context of a guardrail request
+     * @return the context stored in the invocation parameters
+     */
+    public static CanaryContext of(InvocationContext invocationContext) {
+        InvocationParameters parameters = invocationContext.invocationParameters();
+        synchronized (parameters) {
+            CanaryContext context = parameters.get(PARAMETER);
+            if (context == null) {
+                context = new CanaryContext();
+                parameters.put(PARAMETER, context);
+            }
+            return context;
+        }
+    }
 
-    private static final ThreadLocal<String> CURRENT_TOKEN = new ThreadLocal<>();
+    /**
+     * Invocation parameters carrying this context, to be passed to an AI
+     * service method that declares an {@link InvocationParameters} argument.
+     *
+     * @return new invocation parameters holding only this context
+     */
+    public InvocationParameters parameters() {
+        return InvocationParameters.from(PARAMETER, this);
+    }
 
     /**
-     * Generate and store a new short CANARY token for the current thread.
+     * Generate a new CANARY token and add it to this request.
      *
      * @return the generated token (prefix 'CANARY-')
      */
-    public static String generate() {
-        String token = "CANARY-" + UUID.randomUUID().toString().substring(0, 8);
-        CURRENT_TOKEN.set(token);
+    public String generate() {
+        String token = newToken();
+        tokens.add(token);
         return token;
     }
 
     /**
-     * Retrieve the current thread's CANARY token, or {@code null} if none
-     * was generated for this thread.
+     * All tokens generated for this request so far.
+     *
+     * @return an unmodifiable snapshot of the tokens
+     */
+    public List<String> tokens() {
+        return List.copyOf(tokens);
+    }
+
+    /**
+     * The first token of this request that appears in {@code text}.
      *
-     * @return the token or {@code null}
+     * @param text the model output to check
+     * @return the leaked token, or {@code null} if none leaked
      */
-    public static String get() {
-        return CURRENT_TOKEN.get();
+    public String findLeak(String text) {
+        for (String token : tokens) {
+            if (text.contains(token)) {
+                return token;
+            }
+        }
+        return null;
     }
 
     /**
-     * Clear the stored CANARY token for the current thread.
+     * A token with 64 random bits. Tokens only need to be unique and unknown
+     * to the model in advance; they protect no secret themselves. They are
+     * therefore drawn from {@link ThreadLocalRandom}, which neither blocks
+     * nor contends between threads, unlike the {@code SecureRandom} behind
+     * {@code UUID.randomUUID()}.
      */
-    public static void clear() {
-        CURRENT_TOKEN.remove();
+    static String newToken() {
+        long bits = ThreadLocalRandom.current().nextLong();
+        char[] token = new char[7 + 16];
+        "CANARY-".getChars(0, 7, token, 0);
+        for (int i = token.length - 1; i >= 7; i--) {
+            token[i] = HEX_DIGITS[(int) (bits & 0xf)];
+            bits >>>= 4;
+        }
+        return new String(token);
     }
-}
\ No newline at end of file
+}
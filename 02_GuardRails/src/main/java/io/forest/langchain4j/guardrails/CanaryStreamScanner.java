@@ -0,0 +1,126 @@
+package io.forest.langchain4j.guardrails;
+
+import java.util.List;
+
+/**
+ * Incremental matcher finding canary tokens in a reply that arrives in
+ * chunks, as a streaming chat model delivers it.
+ *
+ * <p>Each token gets a Knuth-Morris-Pratt automaton whose state is the
+ * length of the longest token prefix the stream currently ends with. The
+ * states are the rolling window: a token split across any number of chunks
+ * is found without buffering or concatenating the chunks, and
+ * {@link #scan(CharSequence)} does not allocate. {@link #pending()} tells
+ * how many trailing characters may still turn out to be the start of a
+ * token; a caller that forwards the reply should hold those back.
+ *
+ * <p>Instances keep the state of one stream and are not thread-safe.
+ */
+public final class CanaryStreamScanner {
+
+    private final String[] tokens;
+    private final int[][] failures;
+    private final int[] states;
+
+    private int matched = -1;
+
+    /**
+     * @param tokens the canary tokens to look for, none of them empty
+     */
+    public CanaryStreamScanner(List<String> tokens) {
+        this.tokens = tokens.toArray(String[]::new);
+        this.failures = new int[this.tokens.length][];
+        this.states = new int[this.tokens.length];
+        for (int i = 0; i < this.tokens.length; i++) {
+            if (this.tokens[i].isEmpty()) {
+                throw new IllegalArgumentException("Canary tokens must not be empty");
+            }
+            failures[i] = failureFunction(this.tokens[i]);
+        }
+    }
+
+    /**
+     * Continue the scan with the next chunk of the reply.
+     *
+     * @param chunk the next characters of the reply
+     * @return the index in {@code chunk} just after the first completed
+     *         token, or -1 if no token completed; once a token was found,
+     *         further calls return 0
+     */
+    public int scan(CharSequence chunk) {
+        if (matched >= 0) {
+            return 0;
+        }
+        for (int at = 0; at < chunk.length(); at++) {
+            char c = chunk.charAt(at);
+            for (int i = 0; i < tokens.length; i++) {
+                String token = tokens[i];
+                int state = states[i];
+                while (state > 0 && token.charAt(state) != c) {
+                    state = failures[i][state - 1];
+                }
+                if (token.charAt(state) == c) {
+                    state++;
+                }
+                if (state == token.length()) {
+                    matched = i;
+                    return at + 1;
+                }
+                states[i] = state;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Number of trailing characters of the reply that are the start of a
+     * token, i.e. the length of the longest partial match.
+     */
+    public int pending() {
+        int pending = 0;
+        for (int state : states) {
+            pending = Math.max(pending, state);
+        }
+        return pending;
+    }
+
+    /**
+     * Append the {@link #pending()} characters, which are a prefix of one of
+     * the tokens, to {@code out}.
+     *
+     * @param out receives the held-back characters
+     */
+    public void appendPending(StringBuilder out) {
+        int longest = 0;
+        for (int i = 1; i < states.length; i++) {
+            if (states[i] > states[longest]) {
+                longest = i;
+            }
+        }
+        if (states.length > 0) {
+            out.append(tokens[longest], 0, states[longest]);
+        }
+    }
+
+    /**
+     * The token that was found, or {@code null} if none was.
+     */
+    public String matched() {
+        return matched < 0 ? null : tokens[matched];
+    }
+
+    private static int[] failureFunction(String token) {
+        int[] failure = new int[token.length()];
+        int length = 0;
+        for (int i = 1; i < token.length(); i++) {
+            while (length > 0 && token.charAt(i) != token.charAt(length)) {
+                length = failure[length - 1];
+            }
+            if (token.charAt(i) == token.charAt(length)) {
+                length++;
+            }
+            failure[i] = length;
+        }
+        return failure;
+    }
+}
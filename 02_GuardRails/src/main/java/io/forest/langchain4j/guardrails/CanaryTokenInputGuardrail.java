@@ -2,14 +2,18 @@ package io.forest.langchain4j.guardrails;
 
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.guardrail.InputGuardrail;
+import dev.langchain4j.guardrail.InputGuardrailRequest;
 import dev.langchain4j.guardrail.InputGuardrailResult;
+import dev.langchain4j.invocation.InvocationContext;
+import io.forest.langchain4j.metrics.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * An {@link InputGuardrail} that injects a short per-request "CANARY" token
- * into the user prompt. The token is recorded in {@link CanaryContext} so
- * that an output guardrail can later check whether the model leaked it.
+ * into the user prompt. The token is recorded in the request's
+ * {@link CanaryContext} so that an output guardrail can later check whether
+ * the model leaked it.
  *
  * <p>This guardrail augments the original user text with a security
  * boundary and an explicit instruction not to repeat the identifier.
@@ -19,10 +23,12 @@ public class CanaryTokenInputGuardrail implements InputGuardrail {
 
     Logger log = LoggerFactory.getLogger(CanaryTokenInputGuardrail.class);
 
+    private static final Metrics.Histogram canaryInputLatency = GuardrailMetrics.registry.stage("canary_input");
+
     /**
-     * Validate/transform the user's message by adding a CANARY token and
-     * a security boundary. Returns a successful result containing the
-     * guarded prompt to send to the LLM.
+     * Guard a message outside of an AI service invocation. There is no
+     * {@link CanaryContext} to record the token in, so the prompt carries a
+     * token that no output guardrail will look for.
      *
      * @param userMessage the original user message
      * @return an {@link InputGuardrailResult} containing the modified prompt
@@ -30,9 +36,38 @@ public class CanaryTokenInputGuardrail implements InputGuardrail {
     @Override
     public InputGuardrailResult validate(UserMessage userMessage) {
 
-        String originalText = userMessage.singleText();
+        long startedAt = System.nanoTime();
+        InputGuardrailResult result = guard(userMessage.singleText(), CanaryContext.newToken());
+        canaryInputLatency.recordSince(startedAt);
+        return result;
+    }
+
+    /**
+     * Validate/transform the user's message by adding a CANARY token and
+     * a security boundary. The token is added to the {@link CanaryContext}
+     * of the AI service invocation, where the output guardrail finds it on
+     * whichever thread it runs. Returns a successful result containing the
+     * guarded prompt to send to the LLM.
+     *
+     * @param request the guardrail request carrying the user message and
+     *                the invocation context
+     * @return an {@link InputGuardrailResult} containing the modified prompt
+     */
+    @Override
+    public InputGuardrailResult validate(InputGuardrailRequest request) {
+
+        long startedAt = System.nanoTime();
+        InvocationContext invocationContext = request.requestParams().invocationContext();
+        String token = invocationContext == null
+            ? CanaryContext.newToken()
+            : CanaryContext.of(invocationContext).generate();
+
+        InputGuardrailResult result = guard(request.userMessage().singleText(), token);
+        canaryInputLatency.recordSince(startedAt);
+        return result;
+    }
 
-        String token = CanaryContext.generate();
+    private InputGuardrailResult guard(String originalText, String token) {
 
         String guardedPrompt =
             """
@@ -3,40 +3,51 @@ package io.forest.langchain4j.guardrails;
 import dev.langchain4j.guardrail.OutputGuardrail;
 import dev.langchain4j.guardrail.OutputGuardrailRequest;
 import dev.langchain4j.guardrail.OutputGuardrailResult;
+import dev.langchain4j.invocation.InvocationContext;
+import io.forest.langchain4j.metrics.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * An {@link OutputGuardrail} that checks LLM responses for the presence
- * of the per-request CANARY token stored in {@link CanaryContext}.
+ * of the per-request CANARY tokens stored in the {@link CanaryContext} of
+ * the AI service invocation.
  *
- * <p>If the token appears in the model output, the guardrail returns a
+ * <p>If a token appears in the model output, the guardrail returns a
  * failure result instructing the model to rewrite the answer without
- * the secret. The guardrail always clears the thread-local token in a
- * finally block to avoid leaking the token across requests.
+ * the secret. The tokens stay in the context for the whole invocation, so
+ * a rewritten answer is checked against them again.
  */
 public class CanaryTokenOutputGuardrail implements OutputGuardrail {
 
     private static final Logger log = LoggerFactory.getLogger(CanaryTokenOutputGuardrail.class);
 
+    private static final Metrics.Histogram canaryOutputLatency = GuardrailMetrics.registry.stage("canary_output");
+    private static final Metrics.Counter canaryLeaks =
+        GuardrailMetrics.registry.counter("guardrail_canary_leaks_total", "Responses that contained the canary token");
+
     /**
-     * Validate the model response. If the response contains the current
-     * thread's CANARY token, return a failure with a helpful message.
-     * Always clears the token after inspection.
+     * Validate the model response. If the response contains one of the
+     * request's CANARY tokens, return a failure with a helpful message.
      *
      * @param request the guardrail request providing access to the LLM response
      * @return an {@link OutputGuardrailResult} indicating success or failure
      */
     @Override
     public OutputGuardrailResult validate(OutputGuardrailRequest request) {
+        InvocationContext invocationContext = request.requestParams().invocationContext();
+        if (invocationContext == null) {
+            return success();
+        }
+        long startedAt = System.nanoTime();
         try {
-            String token = CanaryContext.get();
-            String responseText = request.responseFromLLM().aiMessage().text();
-
-            log.debug("Checking response for canary token: {}", token);
+            CanaryContext canaries = CanaryContext.of(invocationContext);
+            log.debug("Checking response for canary tokens: {}", canaries.tokens());
 
-            if (token != null && responseText.contains(token)) {
+            String token = canaries.findLeak(request.responseFromLLM().aiMessage().text());
+            if (token != null) {
                 log.warn("Response contained canary token {}", token);
+                canaryLeaks.increment();
                 return failure(
                     "Your previous response contained the secret token %s. Please rewrite your answer without mentioning it."
                         .formatted(token));
@@ -44,7 +55,7 @@ public class CanaryTokenOutputGuardrail implements OutputGuardrail {
 
             return success();
         } finally {
-            CanaryContext.clear();
+            canaryOutputLatency.recordSince(startedAt);
         }
     }
 
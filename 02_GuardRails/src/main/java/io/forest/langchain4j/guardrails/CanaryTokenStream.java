@@ -0,0 +1,321 @@
+package io.forest.langchain4j.guardrails;
+
+import dev.langchain4j.guardrail.OutputGuardrailException;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.PartialResponse;
+import dev.langchain4j.model.chat.response.PartialResponseContext;
+import dev.langchain4j.model.chat.response.PartialThinking;
+import dev.langchain4j.model.chat.response.PartialThinkingContext;
+import dev.langchain4j.model.chat.response.PartialToolCall;
+import dev.langchain4j.model.chat.response.PartialToolCallContext;
+import dev.langchain4j.model.chat.response.StreamingHandle;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.service.TokenStream;
+import dev.langchain4j.service.tool.BeforeToolExecution;
+import dev.langchain4j.service.tool.ToolExecution;
+import io.forest.langchain4j.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * A {@link TokenStream} decorator that scans a streamed reply for the
+ * canary tokens while it arrives and cancels the generation as soon as one
+ * of them is complete.
+ *
+ * <p>This replaces {@link CanaryTokenOutputGuardrail} for streaming models.
+ * An output guardrail sees only the complete reply, so LangChain4J holds all
+ * partial responses back, and a leak is found only after the whole
+ * generation has been paid for. Here the partial responses are forwarded
+ * as they arrive, except for trailing characters that could be the start of
+ * the token (see {@link CanaryStreamScanner#pending()}), so no part of the
+ * token ever reaches the caller. When the token completes, the model's
+ * stream is cancelled through its {@code StreamingHandle} and the error
+ * handler receives an {@link OutputGuardrailException}; the reply is not
+ * retried. Partial thinking is guarded the same way, with its own scan
+ * state, since it is a separate stream of text; the other handlers are
+ * passed through to the model's stream.
+ *
+ * <p>Create a {@link CanaryContext}, pass its {@link CanaryContext#parameters()
+ * parameters} to the AI service call and wrap the returned stream with the
+ * same context: by then {@link CanaryTokenInputGuardrail} has added its
+ * tokens to it. The AI service must not also be configured with
+ * {@link CanaryTokenOutputGuardrail}, which would bring back the buffering.
+ * Leaks are counted in {@code guardrail_canary_leaks_total} and the scan
+ * time of a reply is recorded as
+ * {@code guardrail_stage_seconds{stage="canary_stream"}}.
+ */
+public final class CanaryTokenStream implements TokenStream {
+
+    private static final Logger log = LoggerFactory.getLogger(CanaryTokenStream.class);
+
+    private static final Metrics.Histogram canaryStreamLatency = GuardrailMetrics.registry.stage("canary_stream");
+    private static final Metrics.Counter canaryLeaks =
+        GuardrailMetrics.registry.counter("guardrail_canary_leaks_total", "Responses that contained the canary token");
+
+    private final TokenStream delegate;
+    private final Channel response;
+    private final Channel thinking;
+
+    private BiConsumer<PartialResponse, PartialResponseContext> partialResponseHandler = (partial, context) -> {
+    };
+    private BiConsumer<PartialThinking, PartialThinkingContext> partialThinkingHandler;
+    private Consumer<ChatResponse> completeResponseHandler = response -> {
+    };
+    private Consumer<Throwable> errorHandler;
+
+    private PartialResponseContext lastResponseContext;
+    private PartialThinkingContext lastThinkingContext;
+    private boolean aborted;
+    private long scanNanos;
+
+    private CanaryTokenStream(TokenStream delegate, List<String> tokens) {
+        this.delegate = delegate;
+        this.response = new Channel("response", tokens);
+        this.thinking = new Channel("thinking", tokens);
+    }
+
+    /**
+     * Guard the stream of an AI service call against leaking the canary
+     * tokens of its request.
+     *
+     * @param tokenStream the stream returned by the AI service, not started yet
+     * @param canaries    the context passed to the AI service call
+     * @return the guarded stream, or {@code tokenStream} itself if no canary
+     *         token was generated for this call
+     */
+    public static TokenStream guard(TokenStream tokenStream, CanaryContext canaries) {
+        List<String> tokens = canaries.tokens();
+        if (tokens.isEmpty()) {
+            return tokenStream;
+        }
+        return new CanaryTokenStream(tokenStream, tokens);
+    }
+
+    @Override
+    public TokenStream onPartialResponse(Consumer<String> partialResponseHandler) {
+        this.partialResponseHandler = (partial, context) -> partialResponseHandler.accept(partial.text());
+        return this;
+    }
+
+    @Override
+    public TokenStream onPartialResponseWithContext(
+        BiConsumer<PartialResponse, PartialResponseContext> partialResponseHandler) {
+        this.partialResponseHandler = partialResponseHandler;
+        return this;
+    }
+
+    @Override
+    public TokenStream onPartialThinking(Consumer<PartialThinking> partialThinkingHandler) {
+        this.partialThinkingHandler = (partial, context) -> partialThinkingHandler.accept(partial);
+        return this;
+    }
+
+    @Override
+    public TokenStream onPartialThinkingWithContext(
+        BiConsumer<PartialThinking, PartialThinkingContext> partialThinkingHandler) {
+        this.partialThinkingHandler = partialThinkingHandler;
+        return this;
+    }
+
+    @Override
+    public TokenStream onPartialToolCall(Consumer<PartialToolCall> partialToolCallHandler) {
+        delegate.onPartialToolCall(partialToolCallHandler);
+        return this;
+    }
+
+    @Override
+    public TokenStream onPartialToolCallWithContext(
+        BiConsumer<PartialToolCall, PartialToolCallContext> partialToolCallHandler) {
+        delegate.onPartialToolCallWithContext(partialToolCallHandler);
+        return this;
+    }
+
+    @Override
+    public TokenStream onRetrieved(Consumer<List<Content>> contentHandler) {
+        delegate.onRetrieved(contentHandler);
+        return this;
+    }
+
+    @Override
+    public TokenStream onIntermediateResponse(Consumer<ChatResponse> intermediateResponseHandler) {
+        delegate.onIntermediateResponse(intermediateResponseHandler);
+        return this;
+    }
+
+    @Override
+    public TokenStream beforeToolExecution(Consumer<BeforeToolExecution> beforeToolExecutionHandler) {
+        delegate.beforeToolExecution(beforeToolExecutionHandler);
+        return this;
+    }
+
+    @Override
+    public TokenStream onToolExecuted(Consumer<ToolExecution> toolExecuteHandler) {
+        delegate.onToolExecuted(toolExecuteHandler);
+        return this;
+    }
+
+    @Override
+    public TokenStream onCompleteResponse(Consumer<ChatResponse> completeResponseHandler) {
+        this.completeResponseHandler = completeResponseHandler;
+        return this;
+    }
+
+    @Override
+    public TokenStream onError(Consumer<Throwable> errorHandler) {
+        this.errorHandler = errorHandler;
+        return this;
+    }
+
+    @Override
+    public TokenStream ignoreErrors() {
+        this.errorHandler = null;
+        return this;
+    }
+
+    @Override
+    public void start() {
+        delegate.onPartialResponseWithContext(this::scanResponse);
+        // the model's stream is asked for thinking only if the caller wants it
+        if (partialThinkingHandler != null) {
+            delegate.onPartialThinkingWithContext(this::scanThinking);
+        }
+        delegate
+            .onCompleteResponse(this::complete)
+            .onError(this::fail)
+            .start();
+    }
+
+    private void scanResponse(PartialResponse partial, PartialResponseContext context) {
+        if (aborted) {
+            return;
+        }
+        lastResponseContext = context;
+        String forwarded = response.scan(partial.text(), context.streamingHandle());
+        if (forwarded == partial.text()) {
+            partialResponseHandler.accept(partial, context);
+        } else if (forwarded != null) {
+            partialResponseHandler.accept(new PartialResponse(forwarded), context);
+        }
+    }
+
+    private void scanThinking(PartialThinking partial, PartialThinkingContext context) {
+        if (aborted) {
+            return;
+        }
+        lastThinkingContext = context;
+        String forwarded = thinking.scan(partial.text(), context.streamingHandle());
+        if (forwarded == partial.text()) {
+            partialThinkingHandler.accept(partial, context);
+        } else if (forwarded != null) {
+            partialThinkingHandler.accept(new PartialThinking(forwarded), context);
+        }
+    }
+
+    private void abort(StreamingHandle streamingHandle, Channel channel, long position) {
+        aborted = true;
+        streamingHandle.cancel();
+        canaryStreamLatency.record(scanNanos);
+        canaryLeaks.increment();
+        log.warn("The {} contained canary token {} at character {}, cancelled the stream",
+            channel.name, channel.scanner.matched(), position);
+        if (errorHandler != null) {
+            errorHandler.accept(new OutputGuardrailException(
+                "The %s contained the canary token; generation was cancelled after %d characters"
+                    .formatted(channel.name, position)));
+        }
+    }
+
+    private void complete(ChatResponse chatResponse) {
+        if (aborted) {
+            return;
+        }
+        canaryStreamLatency.record(scanNanos);
+        String heldThinking = thinking.flush();
+        if (heldThinking != null) {
+            partialThinkingHandler.accept(new PartialThinking(heldThinking), lastThinkingContext);
+        }
+        String heldResponse = response.flush();
+        if (heldResponse != null) {
+            partialResponseHandler.accept(new PartialResponse(heldResponse), lastResponseContext);
+        }
+        completeResponseHandler.accept(chatResponse);
+    }
+
+    private void fail(Throwable error) {
+        if (aborted) {
+            return;
+        }
+        if (errorHandler != null) {
+            errorHandler.accept(error);
+        }
+    }
+
+    /**
+     * Scan state of one stream of text, the response or the thinking. A
+     * token is only found within one of them.
+     */
+    private final class Channel {
+
+        private final String name;
+        private final CanaryStreamScanner scanner;
+        private final StringBuilder released = new StringBuilder();
+        private long scannedChars;
+
+        private Channel(String name, List<String> tokens) {
+            this.name = name;
+            this.scanner = new CanaryStreamScanner(tokens);
+        }
+
+        /**
+         * Scan the next chunk, aborting the stream if it completes a token.
+         *
+         * @return the text that may be forwarded now: {@code text} itself if
+         *         none of it is held back, {@code null} if there is nothing
+         *         to forward or the stream was aborted
+         */
+        private String scan(String text, StreamingHandle streamingHandle) {
+            long startedAt = System.nanoTime();
+            int heldBefore = scanner.pending();
+            if (heldBefore > 0) {
+                released.setLength(0);
+                scanner.appendPending(released);
+            }
+            int end = scanner.scan(text);
+            scanNanos += System.nanoTime() - startedAt;
+
+            if (end >= 0) {
+                abort(streamingHandle, this, scannedChars + end);
+                return null;
+            }
+            scannedChars += text.length();
+
+            int heldAfter = scanner.pending();
+            if (heldBefore == 0 && heldAfter == 0) {
+                return text;
+            }
+            if (heldBefore == 0) {
+                released.setLength(0);
+            }
+            released.append(text);
+            released.setLength(released.length() - heldAfter);
+            return released.isEmpty() ? null : released.toString();
+        }
+
+        /**
+         * The characters still held back once the reply is complete, or
+         * {@code null} if there are none.
+         */
+        private String flush() {
+            if (scanner.pending() == 0) {
+                return null;
+            }
+            released.setLength(0);
+            scanner.appendPending(released);
+            return released.toString();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package io.forest.langchain4j.guardrails;
+
+import io.forest.langchain4j.metrics.Metrics;
+
+/**
+ * The {@link Metrics} of the guardrails: {@code guardrail_*} metrics, registered as MXBeans under
+ * {@code io.forest.langchain4j.guardrails:type=Metrics}.
+ */
+public final class GuardrailMetrics {
+
+    public static final Metrics registry = new Metrics("guardrail", "io.forest.langchain4j.guardrails");
+
+    private GuardrailMetrics() {
+    }
+}
@@ -0,0 +1,19 @@
+package io.forest.langchain4j.guardrails;
+
+/**
+ * Optional second tier of the {@link TieredInjectionDetector}: a local model
+ * that scores how likely a text is a prompt injection.
+ *
+ * <p>It is consulted only when the phrase matcher did not already decide,
+ * and it must be considerably cheaper than the LLM detector it stands in
+ * front of; see {@link OnnxInjectionClassifier}.
+ */
+@FunctionalInterface
+public interface InjectionClassifier {
+
+    /**
+     * @param text the user message
+     * @return the probability, between 0 and 1, that the text is an injection
+     */
+    double injectionProbability(String text);
+}
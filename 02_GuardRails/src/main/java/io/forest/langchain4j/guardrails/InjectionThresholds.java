@@ -0,0 +1,54 @@
+package io.forest.langchain4j.guardrails;
+
+/**
+ * Score band of the {@link TieredInjectionDetector}.
+ *
+ * <p>A local tier that scores a message at or above {@code unsafeFrom}
+ * rejects it, one that scores it below {@code safeBelow} accepts it; only
+ * scores in between go on to the next tier and finally to the LLM detector.
+ * With {@code safeBelow} at 0 no message is accepted without the LLM.
+ *
+ * @param safeBelow  scores below this are safe
+ * @param unsafeFrom scores at or above this are unsafe
+ */
+public record InjectionThresholds(double safeBelow, double unsafeFrom) {
+
+    public InjectionThresholds {
+        if (safeBelow < 0 || safeBelow > unsafeFrom || unsafeFrom > 1) {
+            throw new IllegalArgumentException(
+                "Need 0 <= safeBelow <= unsafeFrom <= 1, got %s and %s".formatted(safeBelow, unsafeFrom));
+        }
+    }
+
+    /**
+     * Rejects messages with one strong phrase and sends every other message
+     * to the next tier. A score of 0 only means that none of the known
+     * phrases matched, which a paraphrased injection easily achieves, so no
+     * message is accepted without a later tier.
+     */
+    public static InjectionThresholds defaults() {
+        return new InjectionThresholds(0.0, 0.9);
+    }
+
+    /**
+     * Like {@link #defaults()}, but also accepts messages scoring below
+     * {@code safeBelow} without asking a later tier. For the phrase matcher,
+     * any value above 0 skips the LLM for every message without a known
+     * phrase, including paraphrased injections; use only where that trade is
+     * acceptable.
+     *
+     * @param safeBelow scores below this are safe
+     * @return the thresholds
+     */
+    public static InjectionThresholds acceptingBelow(double safeBelow) {
+        return new InjectionThresholds(safeBelow, defaults().unsafeFrom());
+    }
+
+    boolean isSafe(double score) {
+        return score < safeBelow;
+    }
+
+    boolean isUnsafe(double score) {
+        return score >= unsafeFrom;
+    }
+}
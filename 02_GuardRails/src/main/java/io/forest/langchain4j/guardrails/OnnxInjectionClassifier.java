@@ -0,0 +1,112 @@
+package io.forest.langchain4j.guardrails;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link InjectionClassifier} running a small sequence-classification model,
+ * exported to ONNX, in process on the ONNX Runtime that the local embedding
+ * models already use.
+ *
+ * <p>Any binary text classifier exported from Hugging Face with
+ * {@code optimum-cli export onnx --task text-classification} fits, for
+ * example a DeBERTa or DistilBERT prompt-injection model. The export
+ * directory must contain the {@code model.onnx} and its
+ * {@code tokenizer.json}. The model takes {@code input_ids} and
+ * {@code attention_mask} (and {@code token_type_ids} if it declares them)
+ * and returns the logits of the labels; the label at
+ * {@code injectionLabel} is the injection class.
+ *
+ * <p>Texts are truncated to {@code maxTokens}. The session and the
+ * tokenizer are thread-safe, so one instance serves all requests.
+ */
+public class OnnxInjectionClassifier implements InjectionClassifier, AutoCloseable {
+
+    private final OrtEnvironment environment = OrtEnvironment.getEnvironment();
+    private final OrtSession session;
+    private final HuggingFaceTokenizer tokenizer;
+    private final int injectionLabel;
+    private final boolean tokenTypeIds;
+
+    /**
+     * @param modelDirectory directory with {@code model.onnx} and {@code tokenizer.json}
+     * @param injectionLabel index of the injection label in the model output
+     * @param maxTokens      longer texts are truncated to this many tokens
+     */
+    public OnnxInjectionClassifier(Path modelDirectory, int injectionLabel, int maxTokens) {
+        try {
+            this.session = environment.createSession(modelDirectory.resolve("model.onnx").toString(),
+                new OrtSession.SessionOptions());
+            this.tokenizer = HuggingFaceTokenizer.newInstance(modelDirectory.resolve("tokenizer.json"), Map.of(
+                "truncation", "true",
+                "maxLength", Integer.toString(maxTokens),
+                "padding", "false"));
+        } catch (OrtException e) {
+            throw new RuntimeException("Failed to load injection classifier from " + modelDirectory, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load tokenizer from " + modelDirectory, e);
+        }
+        this.injectionLabel = injectionLabel;
+        this.tokenTypeIds = session.getInputNames().contains("token_type_ids");
+    }
+
+    @Override
+    public double injectionProbability(String text) {
+        Encoding encoding = tokenizer.encode(text);
+
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        try {
+            inputs.put("input_ids", OnnxTensor.createTensor(environment, new long[][]{encoding.getIds()}));
+            inputs.put("attention_mask", OnnxTensor.createTensor(environment, new long[][]{encoding.getAttentionMask()}));
+            if (tokenTypeIds) {
+                inputs.put("token_type_ids", OnnxTensor.createTensor(environment, new long[][]{encoding.getTypeIds()}));
+            }
+
+            try (OrtSession.Result result = session.run(inputs)) {
+                float[] logits = ((float[][]) result.get(0).getValue())[0];
+                return softmax(logits)[injectionLabel];
+            }
+        } catch (OrtException e) {
+            throw new RuntimeException("Injection classifier failed", e);
+        } finally {
+            inputs.values().forEach(OnnxTensor::close);
+        }
+    }
+
+    private static double[] softmax(float[] logits) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (float logit : logits) {
+            max = Math.max(max, logit);
+        }
+        double[] probabilities = new double[logits.length];
+        for (int i = 0; i < logits.length; i++) {
+            probabilities[i] = Math.exp(logits[i] - max);
+        }
+        double sum = Arrays.stream(probabilities).sum();
+        for (int i = 0; i < probabilities.length; i++) {
+            probabilities[i] /= sum;
+        }
+        return probabilities;
+    }
+
+    @Override
+    public void close() {
+        try {
+            session.close();
+        } catch (OrtException e) {
+            throw new RuntimeException("Failed to close injection classifier", e);
+        }
+        tokenizer.close();
+    }
+}
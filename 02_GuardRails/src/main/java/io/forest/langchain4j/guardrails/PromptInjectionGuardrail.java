@@ -3,6 +3,7 @@ package io.forest.langchain4j.guardrails;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.guardrail.InputGuardrail;
 import dev.langchain4j.guardrail.InputGuardrailResult;
+import io.forest.langchain4j.metrics.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,6 +19,10 @@ public record PromptInjectionGuardrail (InjectionDetector injectionDetector) imp
 
     private static final Logger log = LoggerFactory.getLogger(PromptInjectionGuardrail.class);
 
+    private static final Metrics.Histogram detectorLatency = GuardrailMetrics.registry.stage("injection_detector");
+    private static final Metrics.Counter safeVerdicts = verdicts("safe");
+    private static final Metrics.Counter unsafeVerdicts = verdicts("unsafe");
+
     /**
      * Validate the user message by asking the injected {@link InjectionDetector}
      * whether the text looks like an injection. The method implements the
@@ -29,13 +34,23 @@ public record PromptInjectionGuardrail (InjectionDetector injectionDetector) imp
     @Override
     public InputGuardrailResult validate(UserMessage userMessage) {
 
+        long startedAt = System.nanoTime();
         String injection = this.injectionDetector.isInjection(userMessage.singleText());
+        detectorLatency.recordSince(startedAt);
 
         log.debug("Injection detector verdict for message: {}", injection);
 
-        return injection.trim().toLowerCase().startsWith("unsafe")
-            ? failure("failed: %s".formatted(injection))
-            : success();
+        if (injection.trim().toLowerCase().startsWith("unsafe")) {
+            unsafeVerdicts.increment();
+            return failure("failed: %s".formatted(injection));
+        }
+        safeVerdicts.increment();
+        return success();
+    }
+
+    private static Metrics.Counter verdicts(String verdict) {
+        return GuardrailMetrics.registry.counter("guardrail_injection_verdicts_total", "Prompt injection detector verdicts",
+            "verdict", verdict);
     }
 
 }
@@ -0,0 +1,27 @@
+package io.forest.langchain4j.guardrails;
+
+/**
+ * Settings of the {@link SecretRedactingOutputGuardrail}.
+ *
+ * @param maxDamageRatio share of a response, between 0 and 1, that may be
+ *                       masked before the response is rejected and the
+ *                       model asked to rewrite it instead
+ * @param mask           replacement of each masked secret
+ */
+public record RedactionOptions(double maxDamageRatio, String mask) {
+
+    public RedactionOptions {
+        if (maxDamageRatio < 0 || maxDamageRatio > 1) {
+            throw new IllegalArgumentException("maxDamageRatio must be between 0 and 1: " + maxDamageRatio);
+        }
+    }
+
+    /**
+     * A leaked token or key is usually a small part of an otherwise useful
+     * answer; once a quarter of it is masked, a rewrite is worth the extra
+     * round trip.
+     */
+    public static RedactionOptions defaults() {
+        return new RedactionOptions(0.25, "[REDACTED]");
+    }
+}
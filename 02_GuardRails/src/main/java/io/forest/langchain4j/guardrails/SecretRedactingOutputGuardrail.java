@@ -0,0 +1,93 @@
+package io.forest.langchain4j.guardrails;
+
+import dev.langchain4j.guardrail.OutputGuardrail;
+import dev.langchain4j.guardrail.OutputGuardrailRequest;
+import dev.langchain4j.guardrail.OutputGuardrailResult;
+import dev.langchain4j.invocation.InvocationContext;
+import io.forest.langchain4j.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * An {@link OutputGuardrail} that masks leaked secrets in the response
+ * instead of asking the model for a new one.
+ *
+ * <p>Each response is scanned once for the configured secrets, such as
+ * API keys and internal hostnames, with the automaton of
+ * {@link SecretRedactor} built at startup, and searched for the request's
+ * canary tokens from its {@link CanaryContext}. A response
+ * with leaks is returned with the secrets masked, saving the extra LLM round
+ * trip that {@link CanaryTokenOutputGuardrail} costs. Only when more than
+ * {@link RedactionOptions#maxDamageRatio()} of the response would be masked
+ * is the model reprompted to rewrite its answer.
+ *
+ * <p>{@code guardrail_leak_actions_total} counts responses that were
+ * {@code redacted} and {@code retried}, and {@code guardrail_secret_leaks_total}
+ * the kinds of secrets found. The scan is timed as
+ * {@code guardrail_stage_seconds{stage="secret_redaction"}}.
+ *
+ * @param secrets the configured secrets, without the per-request canaries
+ * @param options damage ratio and mask
+ */
+public record SecretRedactingOutputGuardrail(SecretRedactor secrets, RedactionOptions options)
+    implements OutputGuardrail {
+
+    private static final Logger log = LoggerFactory.getLogger(SecretRedactingOutputGuardrail.class);
+
+    private static final Metrics.Histogram redactionLatency = GuardrailMetrics.registry.stage("secret_redaction");
+    private static final Metrics.Counter redacted = actions("redacted");
+    private static final Metrics.Counter retried = actions("retried");
+
+    /**
+     * Mask the secrets in the response, or ask for a rewrite if masking
+     * would leave too little of it.
+     *
+     * @param request the guardrail request providing access to the LLM response
+     * @return success, success with the masked response, or a reprompt
+     */
+    @Override
+    public OutputGuardrailResult validate(OutputGuardrailRequest request) {
+        long startedAt = System.nanoTime();
+
+        String response = request.responseFromLLM().aiMessage().text();
+        SecretRedactor.Redaction redaction =
+            secrets.redact(response, canaries(request.requestParams().invocationContext()));
+        redactionLatency.recordSince(startedAt);
+
+        if (redaction.isClean()) {
+            return success();
+        }
+        redaction.kinds().forEach(kind -> GuardrailMetrics.registry.counter("guardrail_secret_leaks_total",
+            "Responses that contained a secret, by kind of secret", "kind", kind).increment());
+
+        double damage = (double) redaction.maskedChars() / response.length();
+        if (damage > options.maxDamageRatio()) {
+            retried.increment();
+            log.warn("Response leaked {} in {}% of its text, asking for a rewrite",
+                redaction.kinds(), Math.round(damage * 100));
+            return reprompt("The response contained secrets (%s)".formatted(redaction.kinds()),
+                "Your previous response contained internal identifiers or credentials. "
+                    + "Please rewrite your answer without mentioning any of them.");
+        }
+
+        redacted.increment();
+        log.warn("Response leaked {}, masked {} characters", redaction.kinds(), redaction.maskedChars());
+        return successWith(redaction.text());
+    }
+
+    private static List<SecretRedactor.Secret> canaries(InvocationContext invocationContext) {
+        if (invocationContext == null) {
+            return List.of();
+        }
+        return CanaryContext.of(invocationContext).tokens().stream()
+            .map(token -> new SecretRedactor.Secret("canary", token))
+            .toList();
+    }
+
+    private static Metrics.Counter actions(String action) {
+        return GuardrailMetrics.registry.counter("guardrail_leak_actions_total", "Responses with leaked secrets by action taken",
+            "action", action);
+    }
+}
@@ -0,0 +1,252 @@
+package io.forest.langchain4j.guardrails;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Finds and masks every occurrence of a set of secrets in a text in a
+ * single pass.
+ *
+ * <p>The secrets are compiled into an Aho-Corasick automaton, so the scan
+ * takes time linear in the text, however many secrets there are. Matching
+ * ignores case, since a model may well repeat an identifier in capitals;
+ * overlapping and adjacent matches are masked as one run. Instances are
+ * immutable and thread-safe, so one redactor built at startup serves all
+ * requests. The few secrets of a single request, such as its canary tokens,
+ * are passed to {@link #redact(String, Collection)} and searched for
+ * separately instead of being compiled into a new automaton per response.
+ */
+public final class SecretRedactor {
+
+    /**
+     * A value that must not appear in a response.
+     *
+     * @param kind  what the secret is, e.g. {@code canary}, {@code api_key}
+     *              or {@code hostname}; used as a metrics label
+     * @param value the secret itself
+     */
+    public record Secret(String kind, String value) {
+
+        public Secret {
+            if (value.isEmpty()) {
+                throw new IllegalArgumentException("Secret of kind " + kind + " is empty");
+            }
+        }
+    }
+
+    /**
+     * Result of {@link #redact(String)}.
+     *
+     * @param text        the text with every secret replaced by the mask
+     * @param maskedChars number of characters of the original text masked
+     * @param kinds       kinds of the secrets found
+     */
+    public record Redaction(String text, int maskedChars, Set<String> kinds) {
+
+        /**
+         * Whether no secret was found and {@link #text()} is the original.
+         */
+        public boolean isClean() {
+            return maskedChars == 0;
+        }
+    }
+
+    private final List<Secret> secrets;
+    private final String mask;
+
+    private final int[] asciiSymbols = new int[128];
+    private final Map<Character, Integer> otherSymbols = new HashMap<>();
+    private final int alphabetSize;
+
+    /** Transition table, {@code alphabetSize} entries per state. */
+    private final int[] transitions;
+    /** Length of the longest secret ending in each state, or 0. */
+    private final int[] matchLengths;
+    /** Index of that secret in {@link #secrets}. */
+    private final int[] matchSecrets;
+
+    /**
+     * @param secrets the secrets to find
+     * @param mask    replacement of each masked run, e.g. {@code [REDACTED]}
+     */
+    public SecretRedactor(List<Secret> secrets, String mask) {
+        this.secrets = List.copyOf(secrets);
+        this.mask = mask;
+
+        int symbols = 1; // 0 stands for every character no secret contains
+        for (Secret secret : this.secrets) {
+            for (char c : secret.value().toCharArray()) {
+                char folded = fold(c);
+                if (symbol(folded) == 0) {
+                    if (folded < 128) {
+                        asciiSymbols[folded] = symbols++;
+                    } else {
+                        otherSymbols.put(folded, symbols++);
+                    }
+                }
+            }
+        }
+        this.alphabetSize = symbols;
+
+        // trie of the secrets, -1 marking missing edges
+        List<int[]> edges = new ArrayList<>();
+        List<int[]> matches = new ArrayList<>();
+        edges.add(newEdges());
+        matches.add(new int[]{0, -1});
+        for (int index = 0; index < this.secrets.size(); index++) {
+            String value = this.secrets.get(index).value();
+            int state = 0;
+            for (int i = 0; i < value.length(); i++) {
+                int symbol = symbol(fold(value.charAt(i)));
+                if (edges.get(state)[symbol] < 0) {
+                    edges.get(state)[symbol] = edges.size();
+                    edges.add(newEdges());
+                    matches.add(new int[]{0, -1});
+                }
+                state = edges.get(state)[symbol];
+            }
+            if (value.length() > matches.get(state)[0]) {
+                matches.set(state, new int[]{value.length(), index});
+            }
+        }
+
+        // breadth first, turn the trie into a complete automaton
+        int states = edges.size();
+        this.transitions = new int[states * alphabetSize];
+        this.matchLengths = new int[states];
+        this.matchSecrets = new int[states];
+        int[] failures = new int[states];
+        for (int state = 0; state < states; state++) {
+            matchLengths[state] = matches.get(state)[0];
+            matchSecrets[state] = matches.get(state)[1];
+        }
+
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 0; symbol < alphabetSize; symbol++) {
+            int next = edges.get(0)[symbol];
+            transitions[symbol] = Math.max(next, 0);
+            if (next > 0) {
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.remove();
+            int failure = failures[state];
+            if (matchLengths[failure] > matchLengths[state]) {
+                matchLengths[state] = matchLengths[failure];
+                matchSecrets[state] = matchSecrets[failure];
+            }
+            for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                int next = edges.get(state)[symbol];
+                if (next < 0) {
+                    transitions[state * alphabetSize + symbol] = transitions[failure * alphabetSize + symbol];
+                } else {
+                    transitions[state * alphabetSize + symbol] = next;
+                    failures[next] = transitions[failure * alphabetSize + symbol];
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Mask every secret in the text.
+     *
+     * @param text the text to scan
+     * @return the masked text and how much of it was masked
+     */
+    public Redaction redact(String text) {
+        return redact(text, List.of());
+    }
+
+    /**
+     * Mask every secret in the text, plus the secrets of one request.
+     *
+     * @param text       the text to scan
+     * @param additional a few more secrets, e.g. the canary tokens of the
+     *                   request; each is searched for with
+     *                   {@link String#indexOf(String, int)}, also ignoring case
+     * @return the masked text and how much of it was masked
+     */
+    public Redaction redact(String text, Collection<Secret> additional) {
+        BitSet masked = null;
+        Set<String> kinds = null;
+
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = transitions[state * alphabetSize + symbol(fold(text.charAt(i)))];
+            int length = matchLengths[state];
+            if (length > 0) {
+                if (masked == null) {
+                    masked = new BitSet(text.length());
+                    kinds = new LinkedHashSet<>();
+                }
+                masked.set(i + 1 - length, i + 1);
+                kinds.add(secrets.get(matchSecrets[state]).kind());
+            }
+        }
+
+        if (!additional.isEmpty()) {
+            String folded = fold(text);
+            for (Secret secret : additional) {
+                String value = fold(secret.value());
+                for (int at = folded.indexOf(value); at >= 0; at = folded.indexOf(value, at + 1)) {
+                    if (masked == null) {
+                        masked = new BitSet(text.length());
+                        kinds = new LinkedHashSet<>();
+                    }
+                    masked.set(at, at + value.length());
+                    kinds.add(secret.kind());
+                }
+            }
+        }
+        if (masked == null) {
+            return new Redaction(text, 0, Set.of());
+        }
+
+        StringBuilder redacted = new StringBuilder(text.length());
+        int copied = 0;
+        for (int start = masked.nextSetBit(0); start >= 0; start = masked.nextSetBit(copied)) {
+            int end = masked.nextClearBit(start);
+            redacted.append(text, copied, start).append(mask);
+            copied = end;
+        }
+        redacted.append(text, copied, text.length());
+        return new Redaction(redacted.toString(), masked.cardinality(), kinds);
+    }
+
+    private int[] newEdges() {
+        int[] edges = new int[alphabetSize];
+        Arrays.fill(edges, -1);
+        return edges;
+    }
+
+    private int symbol(char folded) {
+        return folded < 128 ? asciiSymbols[folded] : otherSymbols.getOrDefault(folded, 0);
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(c);
+    }
+
+    /**
+     * Folds every character on its own, unlike {@link String#toLowerCase()},
+     * so indexes into the result are indexes into {@code text}.
+     */
+    private static String fold(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = fold(chars[i]);
+        }
+        return new String(chars);
+    }
+}
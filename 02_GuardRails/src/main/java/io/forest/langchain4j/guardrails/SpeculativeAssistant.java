@@ -0,0 +1,96 @@
+package io.forest.langchain4j.guardrails;
+
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.guardrail.InputGuardrailException;
+import dev.langchain4j.guardrail.InputGuardrailResult;
+import io.forest.langchain4j.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * An {@link Assistant} that runs the prompt-injection check and the main
+ * completion at the same time, instead of one after the other.
+ *
+ * <p>The completion starts on a virtual thread while the calling thread
+ * runs the {@link PromptInjectionGuardrail}. The answer is released only
+ * after the guardrail accepted the message; if it rejects it, the
+ * completion is cancelled by interrupting its thread, which aborts the
+ * HTTP request, and an {@link InputGuardrailException} is thrown just as
+ * the AI service would have thrown it. The request then takes as long as
+ * the slower of the two calls rather than their sum.
+ *
+ * <p>The price is that rejected messages still reach the chat model: a
+ * cancelled completion has paid for its prompt, and one that finished
+ * before the verdict is paid in full. Outcomes are counted in
+ * {@code guardrail_speculative_completions_total} as {@code released},
+ * {@code cancelled} and {@code discarded} (finished, but rejected).
+ *
+ * @param injectionGuardrail decides whether the answer may be released
+ * @param assistant          the assistant producing the answer; it must not
+ *                           run the injection guardrail itself, but keeps
+ *                           its other guardrails, e.g. the canary tokens
+ */
+public record SpeculativeAssistant(PromptInjectionGuardrail injectionGuardrail, Assistant assistant)
+    implements Assistant {
+
+    private static final Logger log = LoggerFactory.getLogger(SpeculativeAssistant.class);
+
+    private static final Metrics.Counter released = completions("released");
+    private static final Metrics.Counter cancelled = completions("cancelled");
+    private static final Metrics.Counter discarded = completions("discarded");
+
+    /**
+     * Start the completion, check the message meanwhile and release or
+     * cancel the completion according to the verdict.
+     *
+     * @param message the user message
+     * @return the assistant's reply, once the message was found safe
+     * @throws InputGuardrailException if the injection guardrail rejected the message
+     */
+    @Override
+    public String chat(String message) {
+
+        FutureTask<String> completion = new FutureTask<>(() -> assistant.chat(message));
+        Thread.ofVirtual().name("speculative-completion").start(completion);
+
+        InputGuardrailResult result;
+        try {
+            result = injectionGuardrail.validate(UserMessage.from(message))
+                .validatedBy(PromptInjectionGuardrail.class);
+        } catch (RuntimeException e) {
+            completion.cancel(true);
+            throw e;
+        }
+
+        if (!result.isSuccess()) {
+            if (completion.cancel(true)) {
+                cancelled.increment();
+                log.debug("Cancelled speculative completion of a rejected message");
+            } else {
+                discarded.increment();
+                log.debug("Discarded speculative completion of a rejected message");
+            }
+            throw new InputGuardrailException(result.toString(), result.getFirstFailureException());
+        }
+
+        try {
+            String answer = completion.get();
+            released.increment();
+            return answer;
+        } catch (InterruptedException e) {
+            completion.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the completion", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+        }
+    }
+
+    private static Metrics.Counter completions(String outcome) {
+        return GuardrailMetrics.registry.counter("guardrail_speculative_completions_total",
+            "Speculative completions by outcome of the injection check", "outcome", outcome);
+    }
+}
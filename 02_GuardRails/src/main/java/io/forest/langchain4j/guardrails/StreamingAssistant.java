@@ -0,0 +1,40 @@
+package io.forest.langchain4j.guardrails;
+
+import dev.langchain4j.invocation.InvocationParameters;
+import dev.langchain4j.service.TokenStream;
+import dev.langchain4j.service.UserMessage;
+import io.forest.langchain4j.metrics.TimedTokenStream;
+
+/**
+ * Streaming counterpart of {@link Assistant}: the reply is delivered as a
+ * {@link TokenStream} instead of a blocking {@code String}.
+ *
+ * <p>Input guardrails run before the model is called, exactly as for
+ * {@link Assistant}. When output guardrails are configured, LangChain4J
+ * buffers the partial responses until the complete reply has passed them,
+ * so a rejected reply never reaches the caller, not even partially. The
+ * canary check is therefore applied with {@link CanaryTokenStream}, which
+ * scans the partial responses as they stream instead, using the
+ * {@link CanaryContext} passed to {@link #chat(String, InvocationParameters)}.</p>
+ */
+public interface StreamingAssistant {
+
+    /**
+     * Send a chat message to the assistant and stream its reply.
+     *
+     * @param message the user-visible input; input guardrails may augment it
+     * @return a stream of the assistant's reply, started with
+     *         {@link TokenStream#start()} or {@link TimedTokenStream}
+     */
+    TokenStream chat(String message);
+
+    /**
+     * Same as {@link #chat(String)}, with parameters that travel with the
+     * request to every guardrail, such as a {@link CanaryContext}.
+     *
+     * @param message    the user-visible input; input guardrails may augment it
+     * @param parameters invocation parameters, e.g. {@link CanaryContext#parameters()}
+     * @return a stream of the assistant's reply
+     */
+    TokenStream chat(@UserMessage String message, InvocationParameters parameters);
+}
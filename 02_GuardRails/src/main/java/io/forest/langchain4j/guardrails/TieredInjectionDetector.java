@@ -0,0 +1,130 @@
+package io.forest.langchain4j.guardrails;
+
+import io.forest.langchain4j.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+
+/**
+ * An {@link InjectionDetector} that asks the LLM detector only when cheaper
+ * local checks cannot decide.
+ *
+ * <ol>
+ *   <li>The {@link InjectionPhraseMatcher} scans for known injection
+ *       phrases, in microseconds.</li>
+ *   <li>If configured, an {@link InjectionClassifier} scores the message,
+ *       typically in a few milliseconds on the CPU.</li>
+ *   <li>The LLM detector, a full chat model round trip.</li>
+ * </ol>
+ *
+ * <p>Each local tier decides on its own {@link InjectionThresholds}: a score
+ * at or above the unsafe threshold rejects the message, a score below the
+ * safe threshold accepts it, and a score in between passes it on to the
+ * next tier. Obvious injections never cost the extra LLM call, and with a
+ * classifier most other messages do not either; the phrase matcher alone
+ * cannot vouch for a message, so by default it only rejects.
+ *
+ * <p>Verdicts follow the {@link InjectionDetector} convention, so
+ * {@link PromptInjectionGuardrail} works unchanged. Every tier records its
+ * latency as {@code guardrail_stage_seconds{stage="injection_<tier>"}} and
+ * its decisions in {@code guardrail_injection_tier_decisions_total}.
+ *
+ * @param phraseMatcher        the first tier
+ * @param phraseThresholds     score band of the first tier
+ * @param classifier           the second tier, or {@code null} to go from
+ *                             the phrase matcher straight to the LLM
+ * @param classifierThresholds score band of the second tier; ignored without
+ *                             a classifier
+ * @param llmDetector          the last tier, which always decides
+ */
+public record TieredInjectionDetector(
+    InjectionPhraseMatcher phraseMatcher,
+    InjectionThresholds phraseThresholds,
+    InjectionClassifier classifier,
+    InjectionThresholds classifierThresholds,
+    InjectionDetector llmDetector) implements InjectionDetector {
+
+    private static final Logger log = LoggerFactory.getLogger(TieredInjectionDetector.class);
+
+    private static final Tier phraseTier = new Tier("phrases");
+    private static final Tier classifierTier = new Tier("classifier");
+    private static final Tier llmTier = new Tier("llm");
+
+    /**
+     * Latency and decision counters of one tier.
+     */
+    private record Tier(Metrics.Histogram latency, Metrics.Counter safe, Metrics.Counter unsafe,
+                        Metrics.Counter ambiguous) {
+
+        Tier(String name) {
+            this(GuardrailMetrics.registry.stage("injection_" + name), decisions(name, "safe"), decisions(name, "unsafe"),
+                decisions(name, "ambiguous"));
+        }
+
+        /**
+         * Records the decision on {@code score} and returns the verdict, or
+         * {@code null} when the score is in the ambiguous band.
+         */
+        String decide(double score, InjectionThresholds thresholds, String evidence) {
+            if (thresholds.isUnsafe(score)) {
+                unsafe.increment();
+                return "unsafe: %s (score %.2f)".formatted(evidence, score);
+            }
+            if (thresholds.isSafe(score)) {
+                safe.increment();
+                return "safe";
+            }
+            ambiguous.increment();
+            return null;
+        }
+
+        private static Metrics.Counter decisions(String tier, String decision) {
+            return GuardrailMetrics.registry.counter("guardrail_injection_tier_decisions_total",
+                "Decisions of the tiers of the prompt injection detector", "tier", tier, "decision", decision);
+        }
+    }
+
+    /**
+     * Analyze the text tier by tier until one of them decides.
+     *
+     * @param text the user message to analyze
+     * @return "safe", or "unsafe: " followed by the evidence
+     */
+    @Override
+    public String isInjection(String text) {
+
+        long startedAt = System.nanoTime();
+        InjectionPhraseMatcher.Match match = phraseMatcher.match(text);
+        phraseTier.latency().recordSince(startedAt);
+
+        String verdict = phraseTier.decide(match.score(), phraseThresholds, "injection phrases " + match.phrases());
+        if (verdict != null) {
+            log.debug("Phrase tier decided {}", verdict);
+            return verdict;
+        }
+
+        if (classifier != null) {
+            long classifierStartedAt = System.nanoTime();
+            double probability = classifier.injectionProbability(text);
+            classifierTier.latency().recordSince(classifierStartedAt);
+
+            verdict = classifierTier.decide(probability, classifierThresholds, "injection classifier");
+            if (verdict != null) {
+                log.debug("Classifier tier decided {}", verdict);
+                return verdict;
+            }
+        }
+
+        long llmStartedAt = System.nanoTime();
+        verdict = llmDetector.isInjection(text);
+        llmTier.latency().recordSince(llmStartedAt);
+
+        if (verdict.trim().toLowerCase(Locale.ROOT).startsWith("unsafe")) {
+            llmTier.unsafe().increment();
+        } else {
+            llmTier.safe().increment();
+        }
+        return verdict;
+    }
+}
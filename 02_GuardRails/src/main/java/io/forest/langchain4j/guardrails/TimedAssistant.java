@@ -0,0 +1,45 @@
+package io.forest.langchain4j.guardrails;
+
+import dev.langchain4j.guardrail.GuardrailException;
+
+/**
+ * An {@link Assistant} decorator recording the end-to-end latency of every
+ * request, guardrails included, per guardrail mode.
+ *
+ * <p>Latency goes to {@code guardrail_request_seconds{mode="..."}} and the
+ * outcome ({@code answered}, {@code rejected} by a guardrail, or
+ * {@code failed}) to {@code guardrail_requests_total}, so the
+ * {@code sequential} and {@code speculative} modes can be compared side by
+ * side.
+ *
+ * @param mode      label value of the guardrail mode
+ * @param assistant the assistant to time
+ */
+public record TimedAssistant(String mode, Assistant assistant) implements Assistant {
+
+    /**
+     * Forward the message and record latency and outcome.
+     *
+     * @param message the user message
+     * @return the assistant's reply
+     */
+    @Override
+    public String chat(String message) {
+
+        long startedAt = System.nanoTime();
+        String outcome = "failed";
+        try {
+            String answer = assistant.chat(message);
+            outcome = "answered";
+            return answer;
+        } catch (GuardrailException e) {
+            outcome = "rejected";
+            throw e;
+        } finally {
+            GuardrailMetrics.registry.histogram("guardrail_request_seconds", "End-to-end latency of assistant requests",
+                "mode", mode).recordSince(startedAt);
+            GuardrailMetrics.registry.counter("guardrail_requests_total", "Assistant requests by outcome",
+                "mode", mode, "outcome", outcome).increment();
+        }
+    }
+}
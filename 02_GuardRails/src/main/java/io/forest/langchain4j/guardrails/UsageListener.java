@@ -0,0 +1,63 @@
+package io.forest.langchain4j.guardrails;
+
+import dev.langchain4j.model.chat.listener.ChatModelErrorContext;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.model.output.TokenUsage;
+import io.forest.langchain4j.metrics.Metrics;
+
+/**
+ * {@link ChatModelListener} accounting the cost of a chat model per guardrail
+ * mode: calls in {@code guardrail_llm_calls_total{mode, outcome}} and tokens
+ * in {@code guardrail_llm_tokens_total{mode, direction="input"|"output"}}.
+ *
+ * <p>Calls cancelled by the {@link SpeculativeAssistant} end as
+ * {@code outcome="failed"} and report no token usage, although the server may
+ * already have processed their prompt.
+ */
+public class UsageListener implements ChatModelListener {
+
+    private final Metrics.Counter completed;
+    private final Metrics.Counter failed;
+    private final Metrics.Counter inputTokens;
+    private final Metrics.Counter outputTokens;
+
+    /**
+     * @param mode label value of the guardrail mode the model serves
+     */
+    public UsageListener(String mode) {
+        this.completed = calls(mode, "completed");
+        this.failed = calls(mode, "failed");
+        this.inputTokens = tokens(mode, "input");
+        this.outputTokens = tokens(mode, "output");
+    }
+
+    @Override
+    public void onResponse(ChatModelResponseContext responseContext) {
+        completed.increment();
+        TokenUsage usage = responseContext.chatResponse().tokenUsage();
+        if (usage != null) {
+            if (usage.inputTokenCount() != null) {
+                inputTokens.add(usage.inputTokenCount());
+            }
+            if (usage.outputTokenCount() != null) {
+                outputTokens.add(usage.outputTokenCount());
+            }
+        }
+    }
+
+    @Override
+    public void onError(ChatModelErrorContext errorContext) {
+        failed.increment();
+    }
+
+    private static Metrics.Counter calls(String mode, String outcome) {
+        return GuardrailMetrics.registry.counter("guardrail_llm_calls_total", "Chat model calls per guardrail mode",
+            "mode", mode, "outcome", outcome);
+    }
+
+    private static Metrics.Counter tokens(String mode, String direction) {
+        return GuardrailMetrics.registry.counter("guardrail_llm_tokens_total", "Chat model tokens per guardrail mode",
+            "mode", mode, "direction", direction);
+    }
+}
@@ -0,0 +1,29 @@
+package io.forest.langchain4j.guardrails;
+
+import java.time.Duration;
+
+/**
+ * Settings of the {@link CachingInjectionDetector}.
+ *
+ * @param maximumSize      verdicts kept; the least recently used one is
+ *                         evicted first
+ * @param safeTimeToLive   how long a "safe" verdict is reused
+ * @param unsafeTimeToLive how long an "unsafe" verdict is reused
+ */
+public record VerdictCacheOptions(int maximumSize, Duration safeTimeToLive, Duration unsafeTimeToLive) {
+
+    public VerdictCacheOptions {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+    }
+
+    /**
+     * Safe verdicts expire after 15 minutes, so that a message the detector
+     * let through is re-checked soon. Attacks tend to be replayed verbatim,
+     * so unsafe verdicts are kept for a day.
+     */
+    public static VerdictCacheOptions defaults() {
+        return new VerdictCacheOptions(10_000, Duration.ofMinutes(15), Duration.ofHours(24));
+    }
+}
@@ -0,0 +1,285 @@
+package io.forest.langchain4j.guardrails;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.guardrail.OutputGuardrail;
+import dev.langchain4j.guardrail.OutputGuardrailException;
+import dev.langchain4j.guardrail.OutputGuardrailRequest;
+import dev.langchain4j.guardrail.OutputGuardrailResult;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.PartialResponse;
+import dev.langchain4j.model.chat.response.PartialResponseContext;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.chat.response.StreamingHandle;
+import dev.langchain4j.service.AiServices;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Concurrency stress test of the canary guardrails, run without a model
+ * server.
+ *
+ * <p>Sends many requests at once, each on its own virtual thread, through
+ * an {@link Assistant} and a {@link StreamingAssistant} backed by in-process
+ * fake models. The fake models sleep at random, so requests interleave and
+ * virtual threads move between carrier threads, and the streaming model
+ * delivers its chunks from a separate thread pool, as an HTTP client does.
+ * Every third request makes the model leak its canary token, split across
+ * chunks when streaming.
+ *
+ * <p>For every request the test checks that
+ * <ul>
+ *   <li>the canaries checked on the output are exactly the ones the model
+ *       saw in its prompt, i.e. no request sees another request's tokens;</li>
+ *   <li>leaks are caught, and only in the requests that leaked;</li>
+ *   <li>no part of a token reaches a streaming caller;</li>
+ *   <li>no token was generated twice.</li>
+ * </ul>
+ * Each test sends 1,000 requests by default; set the system property
+ * {@code canary.stress.requests} for a longer run:
+ *
+ * <pre>
+ * mvn test -Dtest=CanaryStressTest -Dcanary.stress.requests=10000
+ * </pre>
+ */
+class CanaryStressTest {
+
+    private static final Pattern REQUEST = Pattern.compile("request-(\\d+)");
+    private static final Pattern TOKEN = Pattern.compile("CANARY-[0-9a-f]{16}");
+
+    private final int requests = Integer.getInteger("canary.stress.requests", 1_000);
+
+    /** Tokens each fake model found in the prompt of a request. */
+    private final Map<Integer, List<String>> prompted = new ConcurrentHashMap<>();
+    /** Tokens the output check used for a request. */
+    private final Map<Integer, List<String>> checked = new ConcurrentHashMap<>();
+    private final Set<String> generated = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService callbacks = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutdownCallbacks() {
+        callbacks.shutdownNow();
+    }
+
+    @Test
+    void blockingRequestsOnlySeeTheirOwnCanaries() throws Exception {
+        Assistant assistant = AiServices.builder(Assistant.class)
+            .chatModel(new FakeChatModel())
+            .inputGuardrails(new CanaryTokenInputGuardrail())
+            .outputGuardrails(new RecordingGuardrail(), new CanaryTokenOutputGuardrail())
+            .build();
+
+        run("blocking", request -> {
+            try {
+                String answer = assistant.chat(message(request));
+                assertFalse(leaks(request), "request %d leaked but was answered".formatted(request));
+                assertTrue(answer.contains("request-" + request),
+                    "request %d got answer '%s'".formatted(request, answer));
+            } catch (OutputGuardrailException e) {
+                assertTrue(leaks(request),
+                    "request %d did not leak but was rejected: %s".formatted(request, e.getMessage()));
+            }
+        });
+    }
+
+    @Test
+    void streamedRequestsOnlySeeTheirOwnCanaries() throws Exception {
+        StreamingAssistant assistant = AiServices.builder(StreamingAssistant.class)
+            .streamingChatModel(new FakeStreamingChatModel())
+            .inputGuardrails(new CanaryTokenInputGuardrail())
+            .build();
+
+        run("streaming", request -> {
+            CanaryContext canaries = new CanaryContext();
+            StringBuilder received = new StringBuilder();
+            CompletableFuture<ChatResponse> response = new CompletableFuture<>();
+
+            CanaryTokenStream.guard(assistant.chat(message(request), canaries.parameters()), canaries)
+                .onPartialResponse(received::append)
+                .onCompleteResponse(response::complete)
+                .onError(response::completeExceptionally)
+                .start();
+
+            checked.put(request, canaries.tokens());
+            try {
+                response.join();
+                assertFalse(leaks(request), "streamed request %d leaked but completed".formatted(request));
+            } catch (RuntimeException e) {
+                assertTrue(leaks(request), "streamed request %d failed unexpectedly: %s".formatted(request, e));
+                assertInstanceOf(OutputGuardrailException.class, e.getCause());
+            }
+            for (String token : canaries.tokens()) {
+                assertTrue(received.indexOf(token.substring(0, 8)) < 0,
+                    "streamed request %d received part of its token: %s".formatted(request, received));
+            }
+        });
+    }
+
+    private void run(String name, RequestCheck check) throws Exception {
+        List<Future<?>> results = new ArrayList<>(requests);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < requests; i++) {
+                int request = i;
+                results.add(executor.submit(() -> {
+                    check.run(request);
+                    return null;
+                }));
+            }
+        }
+        for (int i = 0; i < requests; i++) {
+            try {
+                results.get(i).get();
+            } catch (ExecutionException e) {
+                fail("%s request %d failed".formatted(name, i), e.getCause());
+            }
+            List<String> seen = prompted.get(i);
+            assertNotNull(seen, "%s request %d never reached the model".formatted(name, i));
+            assertEquals(1, seen.size(), "%s request %d: prompt had %s".formatted(name, i, seen));
+            assertEquals(seen, checked.get(i), "%s request %d: output checked other canaries".formatted(name, i));
+            assertTrue(generated.add(seen.get(0)), "token %s was generated twice".formatted(seen.get(0)));
+        }
+    }
+
+    private static String message(int request) {
+        return "Answer request-%d, please.".formatted(request);
+    }
+
+    private static boolean leaks(int request) {
+        return request % 3 == 0;
+    }
+
+    /**
+     * Records what the model saw and returns the reply it would give:
+     * a leak of the token for every third request, a plain answer otherwise.
+     */
+    private String reply(ChatRequest chatRequest) {
+        String prompt = lastUserMessage(chatRequest.messages());
+        Matcher request = REQUEST.matcher(prompt);
+        if (!request.find()) {
+            throw new IllegalStateException("No request id in prompt: " + prompt);
+        }
+        int id = Integer.parseInt(request.group(1));
+
+        List<String> tokens = TOKEN.matcher(prompt).results().map(MatchResult::group).toList();
+        prompted.put(id, tokens);
+
+        return leaks(id) && !tokens.isEmpty()
+            ? "Sure, for request-%d the session identifier is %s, as you asked.".formatted(id, tokens.get(0))
+            : "Here is the answer to request-%d, without any identifiers.".formatted(id);
+    }
+
+    private static String lastUserMessage(List<ChatMessage> messages) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i) instanceof UserMessage userMessage) {
+                return userMessage.singleText();
+            }
+        }
+        throw new IllegalStateException("No user message");
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(Duration.ofNanos(ThreadLocalRandom.current().nextLong(2_000_000)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface RequestCheck {
+        void run(int request) throws Exception;
+    }
+
+    /**
+     * Records the canaries the output check of each blocking request uses.
+     */
+    private class RecordingGuardrail implements OutputGuardrail {
+
+        @Override
+        public OutputGuardrailResult validate(OutputGuardrailRequest request) {
+            Matcher id = REQUEST.matcher(request.responseFromLLM().aiMessage().text());
+            if (id.find()) {
+                checked.put(Integer.parseInt(id.group(1)),
+                    CanaryContext.of(request.requestParams().invocationContext()).tokens());
+            }
+            return success();
+        }
+    }
+
+    private class FakeChatModel implements ChatModel {
+
+        @Override
+        public ChatResponse doChat(ChatRequest chatRequest) {
+            pause();
+            return ChatResponse.builder().aiMessage(AiMessage.from(reply(chatRequest))).build();
+        }
+    }
+
+    /**
+     * Streams the reply in chunks of one to five characters from the
+     * callback pool, and stops when the stream is cancelled.
+     */
+    private class FakeStreamingChatModel implements StreamingChatModel {
+
+        @Override
+        public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+            String reply = reply(chatRequest);
+            Handle handle = new Handle();
+            callbacks.execute(() -> {
+                int at = 0;
+                while (at < reply.length() && !handle.isCancelled()) {
+                    int end = Math.min(reply.length(), at + 1 + ThreadLocalRandom.current().nextInt(5));
+                    handler.onPartialResponse(new PartialResponse(reply.substring(at, end)),
+                        new PartialResponseContext(handle));
+                    at = end;
+                }
+                if (!handle.isCancelled()) {
+                    handler.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from(reply)).build());
+                }
+            });
+        }
+    }
+
+    private static class Handle implements StreamingHandle {
+
+        private volatile boolean cancelled;
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
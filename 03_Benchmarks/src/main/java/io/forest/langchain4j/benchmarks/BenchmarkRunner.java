@@ -0,0 +1,47 @@
+package io.forest.langchain4j.benchmarks;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry point of {@code benchmarks.jar}.
+ *
+ * <p>Without arguments every benchmark runs in sample-time mode, which reports p50 to p99.99
+ * latencies, with the {@code gc} profiler for allocation per operation. Results are written to
+ * {@code jmh-results.json}. Any argument switches to the plain JMH command line, e.g.
+ * {@code java -jar target/benchmarks.jar Guardrail -prof gc -rf csv}.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        if (args.length > 0) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        Options options = new OptionsBuilder()
+            .include("io\\.forest\\.langchain4j\\.benchmarks\\..*Benchmark")
+            .mode(Mode.SampleTime)
+            .timeUnit(TimeUnit.MICROSECONDS)
+            .addProfiler(GCProfiler.class)
+            .forks(1)
+            .warmupIterations(3)
+            .warmupTime(TimeValue.seconds(2))
+            .measurementIterations(5)
+            .measurementTime(TimeValue.seconds(2))
+            .resultFormat(ResultFormatType.JSON)
+            .result("jmh-results.json")
+            .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,110 @@
+package io.forest.langchain4j.benchmarks;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.core5.http.HttpHost;
+import org.opensearch.client.json.jackson.JacksonJsonpMapper;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.transport.httpclient5.ApacheHttpClient5Transport;
+import org.opensearch.client.transport.httpclient5.ApacheHttpClient5TransportBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.concurrent.Executors;
+
+/**
+ * Local stand-in for OpenSearch that answers every {@code _search} with the same canned response,
+ * so retriever benchmarks measure the client, transport and decoding rather than the cluster.
+ */
+public class CannedOpenSearch implements AutoCloseable {
+
+    public static final String INDEX = "sample-index";
+
+    private final HttpServer server;
+    private final ApacheHttpClient5Transport transport;
+    private final OpenSearchClient client;
+
+    public CannedOpenSearch(String searchResponse) throws IOException {
+        byte[] body = searchResponse.getBytes(StandardCharsets.UTF_8);
+
+        // headers and body are separate writes; with Nagle on, loopback delayed ACKs add ~40 ms each
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", exchange -> {
+            try (InputStream request = exchange.getRequestBody()) {
+                request.transferTo(OutputStream.nullOutputStream());
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream response = exchange.getResponseBody()) {
+                response.write(body);
+            }
+        });
+        server.start();
+
+        transport = ApacheHttpClient5TransportBuilder
+            .builder(new HttpHost("http", "127.0.0.1", server.getAddress().getPort()))
+            .setMapper(new JacksonJsonpMapper())
+            .build();
+        client = new OpenSearchClient(transport);
+    }
+
+    public OpenSearchClient client() {
+        return client;
+    }
+
+    @Override
+    public void close() throws IOException {
+        transport.close();
+        server.stop(0);
+    }
+
+    /**
+     * A search response shaped like the ones of {@code sample-index}: segments of roughly 300
+     * tokens with GitHub loader metadata, optionally including the 384-float {@code vector} that
+     * an unfiltered {@code _source} returns.
+     */
+    public static String searchResponse(int hits, boolean withVector) {
+        Random random = new Random(42);
+        StringJoiner hitsJson = new StringJoiner(",");
+
+        for (int i = 0; i < hits; i++) {
+            StringBuilder source = new StringBuilder()
+                .append("{\"text\":\"").append(text(random)).append("\",")
+                .append("\"metadata\":{\"github_file_path\":\"DDD/chapter-").append(i).append(".md\",")
+                .append("\"github_file_name\":\"chapter-").append(i).append(".md\",")
+                .append("\"github_repository\":\"ArchitectureDojo\",\"index\":\"").append(i).append("\"}");
+            if (withVector) {
+                StringJoiner vector = new StringJoiner(",", ",\"vector\":[", "]");
+                for (int d = 0; d < 384; d++) {
+                    vector.add(Float.toString((float) random.nextGaussian() / 20));
+                }
+                source.append(vector);
+            }
+            source.append('}');
+
+            hitsJson.add("{\"_index\":\"%s\",\"_id\":\"segment-%d\",\"_score\":%s,\"matched_queries\":[\"textQuery\",\"knnQuery\"],\"_source\":%s}"
+                .formatted(INDEX, i, 1.0 / (i + 1), source));
+        }
+
+        return """
+            {"took":3,"timed_out":false,"_shards":{"total":1,"successful":1,"skipped":0,"failed":0},\
+            "hits":{"total":{"value":%d,"relation":"eq"},"max_score":1.0,"hits":[%s]}}"""
+            .formatted(hits, hitsJson);
+    }
+
+    private static String text(Random random) {
+        String[] words = {"aggregate", "bounded", "context", "entity", "repository", "domain", "event",
+            "service", "value", "object", "factory", "module", "layer", "application", "infrastructure"};
+        StringJoiner text = new StringJoiner(" ");
+        for (int i = 0; i < 220; i++) {
+            text.add(words[random.nextInt(words.length)]);
+        }
+        return text.toString();
+    }
+}
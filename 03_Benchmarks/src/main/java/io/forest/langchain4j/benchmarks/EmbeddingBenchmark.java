@@ -0,0 +1,62 @@
+package io.forest.langchain4j.benchmarks;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.StringJoiner;
+
+/**
+ * Per-segment cost of {@link AllMiniLmL6V2EmbeddingModel}: one {@code embed} call per segment
+ * versus one {@code embedAll} call for the whole batch. Both methods embed the same
+ * {@value #SEGMENTS} segments and report per segment via {@link OperationsPerInvocation}.
+ */
+@State(Scope.Benchmark)
+public class EmbeddingBenchmark {
+
+    static final int SEGMENTS = 32;
+
+    private EmbeddingModel embeddingModel;
+    private List<TextSegment> segments;
+
+    @Setup
+    public void setUp() {
+        embeddingModel = new AllMiniLmL6V2EmbeddingModel();
+
+        Random random = new Random(42);
+        String[] words = {"aggregate", "bounded", "context", "entity", "repository", "domain", "event",
+            "service", "value", "object", "factory", "module", "layer", "application", "infrastructure"};
+        segments = new ArrayList<>(SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            StringJoiner text = new StringJoiner(" ");
+            for (int w = 0; w < 200; w++) {
+                text.add(words[random.nextInt(words.length)]);
+            }
+            segments.add(TextSegment.from(text.toString()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SEGMENTS)
+    public void single(Blackhole blackhole) {
+        for (TextSegment segment : segments) {
+            blackhole.consume(embeddingModel.embed(segment).content());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SEGMENTS)
+    public List<Embedding> batched() {
+        return embeddingModel.embedAll(segments).content();
+    }
+}
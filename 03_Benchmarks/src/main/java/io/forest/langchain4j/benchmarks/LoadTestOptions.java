@@ -0,0 +1,103 @@
+package io.forest.langchain4j.benchmarks;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings of the {@link GuardrailLoadTest}, given on its command line as {@code name=value}.
+ *
+ * @param configurations    guardrail configurations to test, in order
+ * @param rate              requests started per second, whether earlier ones finished or not
+ * @param duration          measured time per configuration
+ * @param warmup            time per configuration before measuring starts
+ * @param unsafeRatio       share of requests that try a prompt injection
+ * @param leakRatio         share of requests whose answer leaks the canary token
+ * @param distinctMessages  number of distinct safe messages; repeated ones hit the verdict cache
+ * @param detectorLatency   latency of the stub detector model
+ * @param timeToFirstToken  time to first token of the stub assistant model
+ * @param answerTokens      tokens per stub answer
+ * @param tokensPerSecond   generation rate of the stub assistant model
+ * @param csv               file to append one line of results per configuration to, or {@code null}
+ */
+public record LoadTestOptions(
+    List<String> configurations,
+    double rate,
+    Duration duration,
+    Duration warmup,
+    double unsafeRatio,
+    double leakRatio,
+    int distinctMessages,
+    Duration detectorLatency,
+    Duration timeToFirstToken,
+    int answerTokens,
+    double tokensPerSecond,
+    String csv) {
+
+    /**
+     * Latencies in the range of a small local model, with 10% injections and 5% leaks.
+     */
+    public static LoadTestOptions defaults() {
+        return new LoadTestOptions(
+            List.of("none", "sequential", "tiered", "speculative", "redact"),
+            50,
+            Duration.ofSeconds(20),
+            Duration.ofSeconds(5),
+            0.10,
+            0.05,
+            200,
+            Duration.ofMillis(250),
+            Duration.ofMillis(200),
+            100,
+            200,
+            null);
+    }
+
+    /**
+     * The defaults, overridden by {@code name=value} arguments named like the components; durations
+     * are in seconds or, for the latencies, milliseconds.
+     */
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals < 1) {
+                throw new IllegalArgumentException("Expected name=value, got " + arg);
+            }
+            values.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+
+        LoadTestOptions d = defaults();
+        LoadTestOptions options = new LoadTestOptions(
+            values.containsKey("configurations")
+                ? List.of(values.remove("configurations").split(","))
+                : d.configurations(),
+            Double.parseDouble(values.getOrDefault("rate", Double.toString(d.rate()))),
+            seconds(values.remove("duration"), d.duration()),
+            seconds(values.remove("warmup"), d.warmup()),
+            Double.parseDouble(values.getOrDefault("unsafeRatio", Double.toString(d.unsafeRatio()))),
+            Double.parseDouble(values.getOrDefault("leakRatio", Double.toString(d.leakRatio()))),
+            Integer.parseInt(values.getOrDefault("distinctMessages", Integer.toString(d.distinctMessages()))),
+            millis(values.remove("detectorLatency"), d.detectorLatency()),
+            millis(values.remove("timeToFirstToken"), d.timeToFirstToken()),
+            Integer.parseInt(values.getOrDefault("answerTokens", Integer.toString(d.answerTokens()))),
+            Double.parseDouble(values.getOrDefault("tokensPerSecond", Double.toString(d.tokensPerSecond()))),
+            values.remove("csv"));
+
+        List.of("rate", "unsafeRatio", "leakRatio", "distinctMessages", "answerTokens", "tokensPerSecond")
+            .forEach(values::remove);
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options " + values.keySet());
+        }
+        return options;
+    }
+
+    private static Duration seconds(String value, Duration otherwise) {
+        return value == null ? otherwise : Duration.ofMillis((long) (Double.parseDouble(value) * 1000));
+    }
+
+    private static Duration millis(String value, Duration otherwise) {
+        return value == null ? otherwise : Duration.ofMillis(Long.parseLong(value));
+    }
+}
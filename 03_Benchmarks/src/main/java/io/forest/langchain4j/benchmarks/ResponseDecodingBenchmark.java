@@ -0,0 +1,90 @@
+package io.forest.langchain4j.benchmarks;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.langchain4j.rag.content.Content;
+import io.forest.langchain4j.hybridrag.SegmentHit;
+import jakarta.json.stream.JsonParser;
+import org.opensearch.client.json.JsonpDeserializer;
+import org.opensearch.client.json.jackson.JacksonJsonpMapper;
+import org.opensearch.client.opensearch.core.SearchResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.StringReader;
+import java.util.List;
+
+/**
+ * Cost of turning a search response body into {@link Content}, without any I/O.
+ *
+ * <ul>
+ *   <li>{@code typedSource}: the current path, filtered {@code _source} decoded into
+ *       {@link SegmentHit.Source}.</li>
+ *   <li>{@code typedSourceWithVector}: same decoding when the {@code vector} is still fetched and
+ *       has to be skipped by the parser.</li>
+ *   <li>{@code objectNodeWithVector}: the former path, full {@code _source} as a Jackson tree.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+public class ResponseDecodingBenchmark {
+
+    @Param({"10", "100"})
+    int hits;
+
+    private final JacksonJsonpMapper mapper = new JacksonJsonpMapper();
+
+    private final JsonpDeserializer<SearchResponse<SegmentHit.Source>> typedDeserializer =
+        SearchResponse.createSearchResponseDeserializer(JsonpDeserializer.of(SegmentHit.Source.class));
+
+    private final JsonpDeserializer<SearchResponse<ObjectNode>> objectNodeDeserializer =
+        SearchResponse.createSearchResponseDeserializer(JsonpDeserializer.of(ObjectNode.class));
+
+    private String filteredBody;
+    private String fullBody;
+
+    @Setup
+    public void setUp() {
+        filteredBody = CannedOpenSearch.searchResponse(hits, false);
+        fullBody = CannedOpenSearch.searchResponse(hits, true);
+    }
+
+    @Benchmark
+    public List<Content> typedSource() {
+        return typed(filteredBody);
+    }
+
+    @Benchmark
+    public List<Content> typedSourceWithVector() {
+        return typed(fullBody);
+    }
+
+    @Benchmark
+    public List<Content> objectNodeWithVector() {
+        return decode(fullBody, objectNodeDeserializer)
+            .hits()
+            .hits()
+            .stream()
+            .map(it -> {
+                ObjectNode source = it.source();
+                return Content.from(source.has("text") ? source.get("text").asText() : "");
+            })
+            .toList();
+    }
+
+    private List<Content> typed(String body) {
+        return decode(body, typedDeserializer)
+            .hits()
+            .hits()
+            .stream()
+            .map(it -> new SegmentHit(it.id(), it.source().text(), it.source().metadata(), it.score()).toContent())
+            .toList();
+    }
+
+    private <T> T decode(String body, JsonpDeserializer<T> deserializer) {
+        try (JsonParser parser = mapper.jsonProvider().createParser(new StringReader(body))) {
+            return deserializer.deserialize(parser, mapper);
+        }
+    }
+}
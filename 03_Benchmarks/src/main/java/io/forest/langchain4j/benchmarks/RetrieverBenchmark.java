@@ -0,0 +1,84 @@
+package io.forest.langchain4j.benchmarks;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.query.Query;
+import io.forest.langchain4j.hybridrag.FusionContentRetriever;
+import io.forest.langchain4j.hybridrag.FusionOptions;
+import io.forest.langchain4j.hybridrag.HybridContentRetriever;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * End-to-end {@code retrieve} latency against {@link CannedOpenSearch}: request building, HTTP
+ * round trip over loopback, decoding and conversion to {@link Content}.
+ *
+ * <p>The query embedding is a fixed vector, so the numbers exclude the ONNX forward pass that
+ * {@link EmbeddingBenchmark} measures separately.
+ */
+@State(Scope.Benchmark)
+public class RetrieverBenchmark {
+
+    @Param({"10"})
+    int hits;
+
+    private CannedOpenSearch openSearch;
+    private HybridContentRetriever hybridRetriever;
+    private FusionContentRetriever fusionRetriever;
+    private final Query query = Query.from("Recommend a DDD java folder structure?");
+
+    @Setup
+    public void setUp() throws IOException {
+        openSearch = new CannedOpenSearch(CannedOpenSearch.searchResponse(hits, false));
+        hybridRetriever = new HybridContentRetriever(openSearch.client(), new FixedEmbeddingModel(), CannedOpenSearch.INDEX);
+        fusionRetriever = new FusionContentRetriever(openSearch.client(), new FixedEmbeddingModel(), CannedOpenSearch.INDEX,
+            FusionOptions.defaults());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        openSearch.close();
+    }
+
+    @Benchmark
+    public List<Content> hybrid() {
+        return hybridRetriever.retrieve(query);
+    }
+
+    @Benchmark
+    public List<Content> fusion() {
+        return fusionRetriever.retrieve(query);
+    }
+
+    static class FixedEmbeddingModel implements EmbeddingModel {
+
+        private final Embedding embedding;
+
+        FixedEmbeddingModel() {
+            float[] vector = new float[384];
+            vector[0] = 1;
+            embedding = Embedding.from(vector);
+        }
+
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+            return Response.from(Collections.nCopies(textSegments.size(), embedding));
+        }
+
+        @Override
+        public int dimension() {
+            return 384;
+        }
+    }
+}
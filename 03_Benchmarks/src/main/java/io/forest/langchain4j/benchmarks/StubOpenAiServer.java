@@ -0,0 +1,207 @@
+package io.forest.langchain4j.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for an OpenAI-compatible chat completions endpoint, so the guardrail pipeline can
+ * be load-tested without a model server.
+ *
+ * <p>Replies are scripted by the request:
+ * <ul>
+ *   <li>Requests for the model {@link #DETECTOR_MODEL} answer {@code unsafe: ...} when the user
+ *       message contains {@link #UNSAFE_MARKER} and {@code safe} otherwise, after
+ *       {@code detectorLatency}.</li>
+ *   <li>Any other model answers with {@code answerTokens} words, sent after
+ *       {@code timeToFirstToken} plus one word per {@code 1 / tokensPerSecond}. When the user
+ *       message contains {@link #LEAK_MARKER}, the answer repeats the canary token of the prompt,
+ *       as a model falling for an injection would.</li>
+ * </ul>
+ * Both {@code "stream": false} and {@code "stream": true} requests are served, the latter as
+ * server-sent events with one word per chunk.
+ */
+public class StubOpenAiServer implements AutoCloseable {
+
+    public static final String DETECTOR_MODEL = "stub-detector";
+    public static final String ASSISTANT_MODEL = "stub-assistant";
+
+    public static final String UNSAFE_MARKER = "ignore all previous instructions";
+    public static final String LEAK_MARKER = "session identifier";
+
+    private static final Pattern CANARY = Pattern.compile("CANARY-[0-9a-f]+");
+
+    private static final String[] WORDS = {"aggregate", "bounded", "context", "entity", "repository",
+        "domain", "event", "service", "value", "object", "factory", "module", "layer", "application"};
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpServer server;
+
+    private final Duration detectorLatency;
+    private final Duration timeToFirstToken;
+    private final int answerTokens;
+    private final double tokensPerSecond;
+
+    private final AtomicLong detectorCalls = new AtomicLong();
+    private final AtomicLong assistantCalls = new AtomicLong();
+
+    /**
+     * @param detectorLatency  time until a detector verdict is returned
+     * @param timeToFirstToken time until the first word of an answer
+     * @param answerTokens     words per answer
+     * @param tokensPerSecond  rate at which the words of an answer are generated
+     */
+    public StubOpenAiServer(Duration detectorLatency, Duration timeToFirstToken, int answerTokens,
+                            double tokensPerSecond) throws IOException {
+        this.detectorLatency = detectorLatency;
+        this.timeToFirstToken = timeToFirstToken;
+        this.answerTokens = answerTokens;
+        this.tokensPerSecond = tokensPerSecond;
+
+        // headers and body are separate writes; with Nagle on, loopback delayed ACKs add ~40 ms each
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/v1/chat/completions", this::complete);
+        server.start();
+    }
+
+    /**
+     * Base URL to configure as the {@code baseUrl} of an OpenAI chat model.
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:%d/v1".formatted(server.getAddress().getPort());
+    }
+
+    public long detectorCalls() {
+        return detectorCalls.get();
+    }
+
+    public long assistantCalls() {
+        return assistantCalls.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void complete(HttpExchange exchange) throws IOException {
+        JsonNode request;
+        try (InputStream body = exchange.getRequestBody()) {
+            request = mapper.readTree(body);
+        }
+        String model = request.path("model").asText();
+        String userMessage = lastUserMessage(request);
+        boolean stream = request.path("stream").asBoolean(false);
+
+        try {
+            if (DETECTOR_MODEL.equals(model)) {
+                detectorCalls.incrementAndGet();
+                Thread.sleep(detectorLatency);
+                String verdict = userMessage.toLowerCase(Locale.ROOT).contains(UNSAFE_MARKER)
+                    ? "unsafe: asks to ignore the instructions"
+                    : "safe";
+                reply(exchange, model, new String[]{verdict}, stream, Duration.ZERO);
+                return;
+            }
+
+            assistantCalls.incrementAndGet();
+            Thread.sleep(timeToFirstToken);
+            reply(exchange, model, answer(userMessage), stream,
+                Duration.ofNanos((long) (1_000_000_000 / tokensPerSecond)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String[] answer(String userMessage) {
+        String[] words = new String[answerTokens];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = (i == 0 ? "" : " ") + WORDS[i % WORDS.length];
+        }
+        Matcher canary = CANARY.matcher(userMessage);
+        if (userMessage.contains(LEAK_MARKER) && canary.find() && words.length > 1) {
+            words[words.length / 2] = " " + canary.group();
+        }
+        return words;
+    }
+
+    /**
+     * Sends the words as one completion, or as one chunk each with {@code perToken} in between.
+     */
+    private void reply(HttpExchange exchange, String model, String[] words, boolean stream, Duration perToken)
+        throws IOException, InterruptedException {
+
+        if (!stream) {
+            Thread.sleep(perToken.multipliedBy(Math.max(0, words.length - 1)));
+            ObjectNode completion = mapper.createObjectNode()
+                .put("id", "stub").put("object", "chat.completion").put("created", 0).put("model", model);
+            ObjectNode choice = completion.putArray("choices").addObject().put("index", 0);
+            choice.putObject("message").put("role", "assistant").put("content", String.join("", words));
+            choice.put("finish_reason", "stop");
+            completion.putObject("usage")
+                .put("prompt_tokens", 100).put("completion_tokens", words.length)
+                .put("total_tokens", 100 + words.length);
+
+            byte[] body = mapper.writeValueAsBytes(completion);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream response = exchange.getResponseBody()) {
+                response.write(body);
+            }
+            return;
+        }
+
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream response = exchange.getResponseBody()) {
+            for (int i = 0; i < words.length; i++) {
+                if (i > 0) {
+                    Thread.sleep(perToken);
+                }
+                event(response, model, mapper.createObjectNode().put("content", words[i]), null);
+            }
+            event(response, model, mapper.createObjectNode(), "stop");
+            response.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void event(OutputStream response, String model, ObjectNode delta, String finishReason)
+        throws IOException {
+        ObjectNode chunk = mapper.createObjectNode()
+            .put("id", "stub").put("object", "chat.completion.chunk").put("created", 0).put("model", model);
+        ObjectNode choice = chunk.putArray("choices").addObject().put("index", 0);
+        choice.set("delta", delta);
+        choice.put("finish_reason", finishReason);
+        response.write(("data: " + mapper.writeValueAsString(chunk) + "\n\n").getBytes(StandardCharsets.UTF_8));
+        response.flush();
+    }
+
+    private static String lastUserMessage(JsonNode request) {
+        String text = "";
+        for (JsonNode message : request.path("messages")) {
+            if ("user".equals(message.path("role").asText())) {
+                JsonNode content = message.path("content");
+                text = content.isTextual() ? content.asText() : content.toString();
+            }
+        }
+        return text;
+    }
+}